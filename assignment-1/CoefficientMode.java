@@ -0,0 +1,32 @@
+package poly;
+
+/**
+ * The arithmetic in which polynomial coefficients are held and combined. Each mode
+ * other than FLOAT has its own polynomial class on primitive arrays of its coefficient
+ * type, so no coefficient is ever boxed.
+ *
+ * @author runb-cs112
+ *
+ */
+public enum CoefficientMode {
+
+	/**
+	 * Single precision, as in Term and PackedPolynomial.
+	 */
+	FLOAT,
+
+	/**
+	 * Double precision, in DoublePolynomial.
+	 */
+	DOUBLE,
+
+	/**
+	 * Exact 64-bit integers, in LongPolynomial; overflow throws ArithmeticException.
+	 */
+	LONG,
+
+	/**
+	 * Integers modulo a prime, in ModPolynomial; exact, and never overflows.
+	 */
+	MOD_PRIME
+}
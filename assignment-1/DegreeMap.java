@@ -0,0 +1,177 @@
+package poly;
+
+import java.util.Arrays;
+
+/**
+ * This class implements an open-addressing hash map from degree to coefficient,
+ * on primitive arrays, for accumulating many terms without creating objects.
+ * Coefficients are accumulated in double precision.
+ *
+ * @author runb-cs112
+ *
+ */
+class DegreeMap {
+
+	/**
+	 * Marks an empty slot. No polynomial term has this degree.
+	 */
+	static final int EMPTY = Integer.MIN_VALUE;
+
+	/**
+	 * Slot keys (degrees), EMPTY if the slot is free.
+	 */
+	int[] keys;
+
+	/**
+	 * Slot values (coefficients), parallel to keys.
+	 */
+	double[] values;
+
+	/**
+	 * Number of occupied slots.
+	 */
+	int size;
+
+	/**
+	 * Initializes an empty map sized for the expected number of distinct degrees.
+	 *
+	 * @param expected Expected number of distinct degrees
+	 */
+	DegreeMap(int expected) {
+		int cap = 16;
+		while (cap < expected * 2L && cap < (1 << 30)) {
+			cap <<= 1;
+		}
+		keys = new int[cap];
+		values = new double[cap];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/**
+	 * Adds a coefficient to the term of the given degree.
+	 *
+	 * @param degree Degree
+	 * @param coeff Coefficient to add
+	 */
+	void add(int degree, double coeff) {
+		int mask = keys.length - 1;
+		int i = hash(degree) & mask;
+		while (true) {
+			int k = keys[i];
+			if (k == degree) {
+				values[i] += coeff;
+				return;
+			}
+			if (k == EMPTY) {
+				keys[i] = degree;
+				values[i] = coeff;
+				if (++size * 2 > keys.length) {
+					grow();
+				}
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+	}
+
+	/**
+	 * Returns the coefficient accumulated for a degree, 0 if there is none.
+	 *
+	 * @param degree Degree
+	 * @return Coefficient
+	 */
+	double get(int degree) {
+		int mask = keys.length - 1;
+		for (int i = hash(degree) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+			if (keys[i] == degree) {
+				return values[i];
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Removes all entries, keeping the allocated capacity.
+	 */
+	void clear() {
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+	}
+
+	/**
+	 * Multiplies every coefficient by a constant.
+	 *
+	 * @param c Constant
+	 */
+	void scale(double c) {
+		if (c == 0) {
+			clear();
+			return;
+		}
+		for (int i = 0; i < keys.length; i++) {
+			values[i] *= c;
+		}
+	}
+
+	/**
+	 * Returns the accumulated terms as a packed polynomial, in ascending order of degree,
+	 * without the terms whose coefficient comes to zero.
+	 *
+	 * @return Packed polynomial
+	 */
+	PackedPolynomial toPacked() {
+		return toPacked(0);
+	}
+
+	/**
+	 * Returns the accumulated terms as a packed polynomial, like toPacked(), with every
+	 * degree raised by shift.
+	 *
+	 * @param shift Amount added to every degree
+	 * @return Packed polynomial
+	 */
+	PackedPolynomial toPacked(int shift) {
+		int[] degrees = new int[size];
+		int n = 0;
+		for (int k : keys) {
+			if (k != EMPTY) {
+				degrees[n++] = k;
+			}
+		}
+		Arrays.sort(degrees);
+		float[] coeffs = new float[n];
+		int m = 0;
+		for (int i = 0; i < n; i++) {
+			float c = (float)get(degrees[i]);
+			if (c != 0) {
+				coeffs[m] = c;
+				degrees[m++] = degrees[i] + shift;
+			}
+		}
+		return new PackedPolynomial(coeffs, degrees, m);
+	}
+
+	private void grow() {
+		int[] oldKeys = keys;
+		double[] oldValues = values;
+		keys = new int[oldKeys.length * 2];
+		values = new double[oldKeys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		int mask = keys.length - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldKeys[j] != EMPTY) {
+				int i = hash(oldKeys[j]) & mask;
+				while (keys[i] != EMPTY) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	private static int hash(int degree) {
+		int h = degree * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,297 @@
+package poly;
+
+/**
+ * This class implements multiplication of dense polynomials - those with most degrees
+ * in their range present. The algorithm is picked from the length of the shorter
+ * operand: schoolbook below the Karatsuba threshold, Karatsuba below the FFT threshold,
+ * and FFT convolution (in double precision) from there on. The thresholds, and the
+ * density from which an operand counts as dense, can be changed with setThresholds.
+ *
+ * @author runb-cs112
+ *
+ */
+public class DenseMultiplier {
+
+	/**
+	 * Shorter operand length from which Karatsuba is used.
+	 */
+	private static volatile int karatsubaThreshold = 32;
+
+	/**
+	 * Shorter operand length from which FFT convolution is used.
+	 */
+	private static volatile int fftThreshold = 512;
+
+	/**
+	 * Fraction of the degree range that must hold terms for a polynomial to count as dense.
+	 */
+	private static volatile float minDensity = 0.5f;
+
+	// prevent instantiation
+	private DenseMultiplier() { }
+
+	/**
+	 * Sets the crossover thresholds.
+	 *
+	 * @param karatsuba Shorter operand length from which Karatsuba is used (at least 2)
+	 * @param fft Shorter operand length from which FFT convolution is used
+	 * @param density Fraction of its degree range a polynomial must fill to count as dense,
+	 *        in (0,1]
+	 * @throws IllegalArgumentException If a threshold is out of range
+	 */
+	public static void setThresholds(int karatsuba, int fft, float density) {
+		if (karatsuba < 2 || fft < 1 || !(density > 0 && density <= 1)) {
+			throw new IllegalArgumentException("Invalid thresholds: karatsuba=" + karatsuba +
+					", fft=" + fft + ", density=" + density);
+		}
+		karatsubaThreshold = karatsuba;
+		fftThreshold = fft;
+		minDensity = density;
+	}
+
+	/**
+	 * Tells whether a polynomial is dense enough for this class.
+	 *
+	 * @param p Polynomial
+	 * @return True if p has terms in at least the set fraction of its degree range
+	 */
+	public static boolean isDense(PackedPolynomial p) {
+		if (p.size == 0) {
+			return false;
+		}
+		long range = (long)p.maxDegree() - p.minDegree() + 1;
+		return p.size >= minDensity * range;
+	}
+
+	/**
+	 * Tells whether PackedPolynomial.multiply would take the FFT path for two operands.
+	 */
+	static boolean usesFft(PackedPolynomial a, PackedPolynomial b) {
+		return isDense(a) && isDense(b) &&
+				Math.min(a.maxDegree() - a.minDegree(), b.maxDegree() - b.minDegree()) + 1 >= fftThreshold;
+	}
+
+	/**
+	 * Returns the product of two packed polynomials, computed on their dense coefficient
+	 * arrays. Correct for any input, but only worth it when both are dense.
+	 *
+	 * @param a First polynomial
+	 * @param b Second polynomial
+	 * @return Product
+	 */
+	public static PackedPolynomial multiply(PackedPolynomial a, PackedPolynomial b) {
+		if (a.size == 0 || b.size == 0) {
+			return PackedPolynomial.ZERO;
+		}
+		double[] product = multiply(toDense(a), toDense(b));
+		return SparseMultiplier.fromDense(product, a.minDegree() + b.minDegree());
+	}
+
+	/**
+	 * Returns the convolution of two dense coefficient arrays, where index k holds
+	 * the coefficient of degree k.
+	 *
+	 * @param a First coefficient array, not empty
+	 * @param b Second coefficient array, not empty
+	 * @return Coefficient array of the product, of length a.length + b.length - 1
+	 */
+	public static double[] multiply(double[] a, double[] b) {
+		int shorter = Math.min(a.length, b.length);
+		if (shorter < karatsubaThreshold) {
+			double[] out = new double[a.length + b.length - 1];
+			schoolbook(a, 0, a.length, b, 0, b.length, out, 0);
+			return out;
+		}
+		if (shorter < fftThreshold) {
+			return karatsuba(a, b);
+		}
+		return fft(a, b);
+	}
+
+	/**
+	 * Unpacks into a dense array, where index k holds the coefficient of degree minDegree+k.
+	 */
+	static double[] toDense(PackedPolynomial p) {
+		int lo = p.minDegree();
+		double[] dense = new double[p.maxDegree() - lo + 1];
+		for (int i = 0; i < p.size; i++) {
+			dense[p.degrees[i] - lo] = p.coeffs[i];
+		}
+		return dense;
+	}
+
+	/**
+	 * Adds the product of a[ao..ao+an) and b[bo..bo+bn) into out starting at oo.
+	 */
+	static void schoolbook(double[] a, int ao, int an, double[] b, int bo, int bn, double[] out, int oo) {
+		for (int i = 0; i < an; i++) {
+			double c = a[ao + i];
+			if (c == 0) {
+				continue;
+			}
+			int base = oo + i;
+			for (int j = 0; j < bn; j++) {
+				out[base + j] += c * b[bo + j];
+			}
+		}
+	}
+
+	/**
+	 * Karatsuba product of arrays of any lengths: the longer one is cut into
+	 * chunks as long as the shorter one, and each chunk product is added in place.
+	 */
+	static double[] karatsuba(double[] a, double[] b) {
+		if (a.length < b.length) {
+			double[] t = a; a = b; b = t;
+		}
+		int n = b.length;
+		double[] out = new double[a.length + n - 1];
+		double[] chunk = new double[n];
+		double[] partial = new double[2 * n - 1];
+		for (int start = 0; start < a.length; start += n) {
+			int len = Math.min(n, a.length - start);
+			System.arraycopy(a, start, chunk, 0, len);
+			java.util.Arrays.fill(chunk, len, n, 0);
+			java.util.Arrays.fill(partial, 0);
+			karatsuba(chunk, 0, b, 0, n, partial, 0);
+			int limit = Math.min(partial.length, out.length - start);
+			for (int k = 0; k < limit; k++) {
+				out[start + k] += partial[k];
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Adds the product of two equal-length slices a[ao..ao+n) and b[bo..bo+n) into out
+	 * starting at oo.
+	 */
+	private static void karatsuba(double[] a, int ao, double[] b, int bo, int n, double[] out, int oo) {
+		if (n < karatsubaThreshold || n < 2) {
+			schoolbook(a, ao, n, b, bo, n, out, oo);
+			return;
+		}
+		int lo = n / 2, hi = n - lo;
+
+		double[] z0 = new double[2 * lo - 1];
+		double[] z2 = new double[2 * hi - 1];
+		karatsuba(a, ao, b, bo, lo, z0, 0);
+		karatsuba(a, ao + lo, b, bo + lo, hi, z2, 0);
+
+		double[] sa = new double[hi], sb = new double[hi];
+		for (int i = 0; i < hi; i++) {
+			sa[i] = a[ao + lo + i];
+			sb[i] = b[bo + lo + i];
+		}
+		for (int i = 0; i < lo; i++) {
+			sa[i] += a[ao + i];
+			sb[i] += b[bo + i];
+		}
+		double[] z1 = new double[2 * hi - 1];
+		karatsuba(sa, 0, sb, 0, hi, z1, 0);
+		for (int i = 0; i < z0.length; i++) {
+			z1[i] -= z0[i];
+			out[oo + i] += z0[i];
+		}
+		for (int i = 0; i < z2.length; i++) {
+			z1[i] -= z2[i];
+			out[oo + 2 * lo + i] += z2[i];
+		}
+		for (int i = 0; i < z1.length; i++) {
+			out[oo + lo + i] += z1[i];
+		}
+	}
+
+	/**
+	 * FFT convolution. a goes in the real part and (scaled) b in the imaginary part of one
+	 * complex signal z; the imaginary part of z*z is then 2*a*b, so two transforms suffice.
+	 * Values below the rounding error of the transform are flushed to zero, so that
+	 * absent degrees do not come back as noise terms.
+	 */
+	static double[] fft(double[] a, double[] b) {
+		int len = a.length + b.length - 1;
+		int n = Integer.highestOneBit(len);
+		if (n < len) {
+			n <<= 1;
+		}
+		double maxA = maxAbs(a), maxB = maxAbs(b);
+		double[] out = new double[len];
+		if (maxA == 0 || maxB == 0) {
+			return out;
+		}
+		double scale = maxA / maxB;
+
+		double[] re = new double[n], im = new double[n];
+		System.arraycopy(a, 0, re, 0, a.length);
+		for (int i = 0; i < b.length; i++) {
+			im[i] = b[i] * scale;
+		}
+		transform(re, im, false);
+		for (int k = 0; k < n; k++) {
+			double r = re[k], i = im[k];
+			re[k] = r * r - i * i;
+			im[k] = 2 * r * i;
+		}
+		transform(re, im, true);
+
+		double tolerance = 1e-13 * n * maxA * maxB;
+		double factor = 1 / (2 * scale * n);
+		for (int k = 0; k < len; k++) {
+			double c = im[k] * factor;
+			out[k] = Math.abs(c) <= tolerance ? 0 : c;
+		}
+		return out;
+	}
+
+	/**
+	 * In-place iterative radix-2 transform; the inverse is left unnormalized.
+	 */
+	private static void transform(double[] re, double[] im, boolean inverse) {
+		int n = re.length;
+		for (int i = 1, j = 0; i < n; i++) {
+			int bit = n >> 1;
+			for (; (j & bit) != 0; bit >>= 1) {
+				j ^= bit;
+			}
+			j ^= bit;
+			if (i < j) {
+				double t = re[i]; re[i] = re[j]; re[j] = t;
+				t = im[i]; im[i] = im[j]; im[j] = t;
+			}
+		}
+
+		// twiddles computed once for the largest stage, strided for the smaller ones
+		int half = n >> 1;
+		double[] cos = new double[Math.max(half, 1)], sin = new double[Math.max(half, 1)];
+		double sign = inverse ? 1 : -1;
+		for (int k = 0; k < half; k++) {
+			double angle = 2 * Math.PI * k / n;
+			cos[k] = Math.cos(angle);
+			sin[k] = sign * Math.sin(angle);
+		}
+
+		for (int size = 2; size <= n; size <<= 1) {
+			int step = n / size, h = size >> 1;
+			for (int start = 0; start < n; start += size) {
+				for (int k = 0; k < h; k++) {
+					double wr = cos[k * step], wi = sin[k * step];
+					int p = start + k, q = p + h;
+					double xr = re[q] * wr - im[q] * wi;
+					double xi = re[q] * wi + im[q] * wr;
+					re[q] = re[p] - xr;
+					im[q] = im[p] - xi;
+					re[p] += xr;
+					im[p] += xi;
+				}
+			}
+		}
+	}
+
+	private static double maxAbs(double[] a) {
+		double max = 0;
+		for (double v : a) {
+			max = Math.max(max, Math.abs(v));
+		}
+		return max;
+	}
+}
@@ -0,0 +1,345 @@
+package poly;
+
+import java.util.Arrays;
+
+/**
+ * This class implements a packed polynomial with double precision coefficients, for
+ * products whose coefficients lose too much in single precision. It is held like
+ * PackedPolynomial - parallel coefficient and degree arrays, degrees strictly ascending,
+ * no zero terms - and is never changed once built.
+ *
+ * @author runb-cs112
+ *
+ */
+public class DoublePolynomial {
+
+	/**
+	 * The zero polynomial (no terms).
+	 */
+	public static final DoublePolynomial ZERO = new DoublePolynomial(new double[0], new int[0], 0);
+
+	/**
+	 * Coefficients, parallel to degrees.
+	 */
+	final double[] coeffs;
+
+	/**
+	 * Degrees, strictly ascending.
+	 */
+	final int[] degrees;
+
+	/**
+	 * Number of terms in use at the front of the arrays.
+	 */
+	final int size;
+
+	/**
+	 * Initializes with arrays that are already in canonical form. The arrays are
+	 * taken over, not copied.
+	 *
+	 * @param coeffs Coefficients
+	 * @param degrees Degrees, strictly ascending
+	 * @param size Number of terms in use
+	 */
+	DoublePolynomial(double[] coeffs, int[] degrees, int size) {
+		this.coeffs = coeffs;
+		this.degrees = degrees;
+		this.size = size;
+	}
+
+	/**
+	 * Builds a polynomial from coefficient and degree arrays in any order. Terms with
+	 * equal degrees are combined, and zero terms are dropped. The input arrays are not
+	 * changed.
+	 *
+	 * @param coeffs Coefficients
+	 * @param degrees Degrees, parallel to coeffs
+	 * @param size Number of terms to take from the front of the arrays
+	 * @return Polynomial in canonical form
+	 */
+	public static DoublePolynomial of(double[] coeffs, int[] degrees, int size) {
+		long[] keys = PackedPolynomial.sortKeys(degrees, size);
+		double[] outc = new double[size];
+		int[] outd = new int[size];
+		int m = 0;
+		for (int k = 0; k < size; ) {
+			int d = (int)(keys[k] >> 32);
+			double c = 0;
+			for (; k < size && (int)(keys[k] >> 32) == d; k++) {
+				c += coeffs[(int)keys[k]];
+			}
+			if (c != 0) {
+				outc[m] = c;
+				outd[m++] = d;
+			}
+		}
+		return new DoublePolynomial(outc, outd, m);
+	}
+
+	/**
+	 * Converts a polynomial linked list. The list is not changed.
+	 *
+	 * @param poly Polynomial (front of linked list)
+	 * @return Polynomial with the same terms
+	 */
+	public static DoublePolynomial fromList(Node poly) {
+		PackedPolynomial p = PackedPolynomial.fromList(poly);
+		double[] coeffs = new double[p.size];
+		for (int i = 0; i < p.size; i++) {
+			coeffs[i] = p.coeffs[i];
+		}
+		return new DoublePolynomial(coeffs, Arrays.copyOf(p.degrees, p.size), p.size);
+	}
+
+	/**
+	 * Converts to a polynomial linked list, rounding every coefficient to float. Terms
+	 * that round to zero are left out.
+	 *
+	 * @return Front of the linked list, lowest degree first, or null if the polynomial is zero
+	 */
+	public Node toList() {
+		Node front = null;
+		for (int i = size - 1; i >= 0; i--) {
+			if ((float)coeffs[i] != 0) {
+				front = new Node((float)coeffs[i], degrees[i], front);
+			}
+		}
+		return front;
+	}
+
+	/**
+	 * Returns the number of (non-zero) terms.
+	 *
+	 * @return Number of terms
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the coefficient of the i-th term, in ascending order of degree.
+	 *
+	 * @param i Term index
+	 * @return Coefficient
+	 */
+	public double coeff(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Term index " + i + " out of bounds for " + size + " terms");
+		}
+		return coeffs[i];
+	}
+
+	/**
+	 * Returns the degree of the i-th term, in ascending order of degree.
+	 *
+	 * @param i Term index
+	 * @return Degree
+	 */
+	public int degree(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Term index " + i + " out of bounds for " + size + " terms");
+		}
+		return degrees[i];
+	}
+
+	/**
+	 * Returns the highest degree, or -1 for the zero polynomial.
+	 *
+	 * @return Highest degree
+	 */
+	public int maxDegree() {
+		return size == 0 ? -1 : degrees[size - 1];
+	}
+
+	/**
+	 * Returns the sum of two polynomials. Neither input is changed.
+	 *
+	 * @param a First polynomial
+	 * @param b Second polynomial
+	 * @return Sum
+	 */
+	public static DoublePolynomial add(DoublePolynomial a, DoublePolynomial b) {
+		double[] coeffs = new double[a.size + b.size];
+		int[] degrees = new int[a.size + b.size];
+		int i = 0, j = 0, n = 0;
+		while (i < a.size || j < b.size) {
+			int d;
+			double c;
+			if (j == b.size || (i < a.size && a.degrees[i] < b.degrees[j])) {
+				d = a.degrees[i];
+				c = a.coeffs[i++];
+			} else if (i == a.size || b.degrees[j] < a.degrees[i]) {
+				d = b.degrees[j];
+				c = b.coeffs[j++];
+			} else {
+				d = a.degrees[i];
+				c = a.coeffs[i++] + b.coeffs[j++];
+			}
+			if (c != 0) {
+				coeffs[n] = c;
+				degrees[n++] = d;
+			}
+		}
+		return new DoublePolynomial(coeffs, degrees, n);
+	}
+
+	/**
+	 * Returns the product of two polynomials. Neither input is changed. Dense operands are
+	 * multiplied with DenseMultiplier; others accumulate their term products by degree in
+	 * a flat array or a DegreeMap, as SparseMultiplier does.
+	 *
+	 * @param a First polynomial
+	 * @param b Second polynomial
+	 * @return Product
+	 */
+	public static DoublePolynomial multiply(DoublePolynomial a, DoublePolynomial b) {
+		if (a.size == 0 || b.size == 0) {
+			return ZERO;
+		}
+		long lo = (long)a.degrees[0] + b.degrees[0];
+		long range = (long)a.maxDegree() + b.maxDegree() - lo + 1;
+		if (isDense(a) && isDense(b)) {
+			return fromDense(DenseMultiplier.multiply(toDense(a), toDense(b)), (int)lo);
+		}
+		long products = (long)a.size * b.size;
+		if (range <= SparseMultiplier.FLAT_RANGE_FACTOR * products && range <= Integer.MAX_VALUE - 8) {
+			double[] acc = new double[(int)range];
+			for (int i = 0; i < a.size; i++) {
+				double c = a.coeffs[i];
+				int base = (int)(a.degrees[i] - lo);
+				for (int j = 0; j < b.size; j++) {
+					acc[base + b.degrees[j]] += c * b.coeffs[j];
+				}
+			}
+			return fromDense(acc, (int)lo);
+		}
+		DegreeMap acc = new DegreeMap(SparseMultiplier.expectedDegrees(products, range, a.size, b.size));
+		for (int i = 0; i < a.size; i++) {
+			double c = a.coeffs[i];
+			int d = a.degrees[i];
+			for (int j = 0; j < b.size; j++) {
+				acc.add(d + b.degrees[j], c * b.coeffs[j]);
+			}
+		}
+		int[] degrees = new int[acc.size];
+		int n = 0;
+		for (int k : acc.keys) {
+			if (k != DegreeMap.EMPTY) {
+				degrees[n++] = k;
+			}
+		}
+		Arrays.sort(degrees);
+		double[] coeffs = new double[n];
+		int m = 0;
+		for (int i = 0; i < n; i++) {
+			double c = acc.get(degrees[i]);
+			if (c != 0) {
+				coeffs[m] = c;
+				degrees[m++] = degrees[i];
+			}
+		}
+		return new DoublePolynomial(coeffs, degrees, m);
+	}
+
+	/**
+	 * Evaluates a polynomial at a given value, by Horner's rule over its terms.
+	 *
+	 * @param a Polynomial
+	 * @param x Value at which evaluation is to be done
+	 * @return Value of polynomial at x
+	 */
+	public static double evaluate(DoublePolynomial a, double x) {
+		if (a.size == 0) {
+			return 0;
+		}
+		double acc = 0;
+		int prev = a.degrees[a.size - 1];
+		for (int i = a.size - 1; i >= 0; i--) {
+			int d = a.degrees[i];
+			acc = acc * Horner.pow(x, prev - d) + a.coeffs[i];
+			prev = d;
+		}
+		return acc * Horner.pow(x, prev);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		if (size == 0) {
+			return "0";
+		}
+		StringBuilder sb = new StringBuilder(size * 16);
+		for (int i = size - 1; i >= 0; i--) {
+			sb.append(coeffs[i]);
+			if (degrees[i] == 1) {
+				sb.append('x');
+			} else if (degrees[i] != 0) {
+				sb.append("x^").append(degrees[i]);
+			}
+			if (i > 0) {
+				sb.append(PolyFormatter.SEPARATOR);
+			}
+		}
+		return sb.toString();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	public boolean equals(Object o) {
+		if (!(o instanceof DoublePolynomial)) {
+			return false;
+		}
+		DoublePolynomial other = (DoublePolynomial)o;
+		return Arrays.equals(coeffs, 0, size, other.coeffs, 0, other.size) &&
+				Arrays.equals(degrees, 0, size, other.degrees, 0, other.size);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode() {
+		int h = 1;
+		for (int i = 0; i < size; i++) {
+			h = 31 * (31 * h + Double.hashCode(coeffs[i])) + degrees[i];
+		}
+		return h;
+	}
+
+	/**
+	 * Dense means at least half the degrees in its range have terms, as DenseMultiplier
+	 * takes it by default.
+	 */
+	private static boolean isDense(DoublePolynomial p) {
+		return 2L * p.size >= (long)p.maxDegree() - p.degrees[0] + 1;
+	}
+
+	private static double[] toDense(DoublePolynomial p) {
+		int lo = p.degrees[0];
+		double[] dense = new double[p.maxDegree() - lo + 1];
+		for (int i = 0; i < p.size; i++) {
+			dense[p.degrees[i] - lo] = p.coeffs[i];
+		}
+		return dense;
+	}
+
+	private static DoublePolynomial fromDense(double[] acc, int lo) {
+		int n = 0;
+		for (double c : acc) {
+			if (c != 0) {
+				n++;
+			}
+		}
+		double[] coeffs = new double[n];
+		int[] degrees = new int[n];
+		n = 0;
+		for (int k = 0; k < acc.length; k++) {
+			if (acc[k] != 0) {
+				coeffs[n] = acc[k];
+				degrees[n++] = lo + k;
+			}
+		}
+		return new DoublePolynomial(coeffs, degrees, n);
+	}
+}
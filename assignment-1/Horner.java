@@ -0,0 +1,208 @@
+package poly;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class implements sparse-aware Horner evaluation of packed polynomials, at one
+ * point or at many points at once. Gaps between consecutive degrees are bridged with
+ * x^gap by repeated squaring, so no Math.pow call is made, and accumulation is in
+ * double precision.
+ *
+ * Batch evaluation works on blocks of points and runs each Horner step across the
+ * whole block, so the inner loops are straight array loops the JIT can vectorize.
+ *
+ * @author runb-cs112
+ *
+ */
+public class Horner {
+
+	/**
+	 * Number of points evaluated together in one block.
+	 */
+	static final int BLOCK = 1024;
+
+	/**
+	 * Smallest number of points worth handing to a separate fork-join task.
+	 */
+	static final int PARALLEL_GRAIN = 16 * BLOCK;
+
+	// prevent instantiation
+	private Horner() { }
+
+	/**
+	 * Evaluates a polynomial at a given value.
+	 *
+	 * @param p Polynomial
+	 * @param x Value at which evaluation is to be done
+	 * @return Value of p at x
+	 */
+	public static float evaluate(PackedPolynomial p, float x) {
+		if (p.size == 0) {
+			return 0;
+		}
+		double acc = 0;
+		int prev = p.degrees[p.size - 1];
+		for (int i = p.size - 1; i >= 0; i--) {
+			int d = p.degrees[i];
+			acc = acc * pow(x, prev - d) + p.coeffs[i];
+			prev = d;
+		}
+		return (float)(acc * pow(x, prev));
+	}
+
+	/**
+	 * Evaluates a polynomial at every point of xs, storing the value at xs[i] in out[i].
+	 *
+	 * @param p Polynomial
+	 * @param xs Points at which evaluation is to be done
+	 * @param out Values, at least as long as xs
+	 * @throws IllegalArgumentException If out is shorter than xs
+	 */
+	public static void evaluate(PackedPolynomial p, float[] xs, float[] out) {
+		checkLengths(xs, out);
+		evaluateRange(p, xs, out, 0, xs.length);
+	}
+
+	/**
+	 * Evaluates a polynomial at every point of xs, like evaluate(p, xs, out), with the
+	 * points split across the tasks of a fork-join pool.
+	 *
+	 * @param p Polynomial
+	 * @param xs Points at which evaluation is to be done
+	 * @param out Values, at least as long as xs
+	 * @param pool Pool to run in
+	 * @throws IllegalArgumentException If out is shorter than xs
+	 */
+	public static void evaluate(PackedPolynomial p, float[] xs, float[] out, ForkJoinPool pool) {
+		checkLengths(xs, out);
+		if (xs.length <= PARALLEL_GRAIN) {
+			evaluateRange(p, xs, out, 0, xs.length);
+			return;
+		}
+		pool.invoke(new RangeTask(p, xs, out, 0, xs.length));
+	}
+
+	/**
+	 * Returns x^k for k >= 0, by repeated squaring.
+	 */
+	static double pow(double x, int k) {
+		double result = 1;
+		while (k > 0) {
+			if ((k & 1) != 0) {
+				result *= x;
+			}
+			x *= x;
+			k >>>= 1;
+		}
+		return result;
+	}
+
+	/**
+	 * Evaluates p at xs[from..to) into out[from..to), one block of points at a time.
+	 */
+	static void evaluateRange(PackedPolynomial p, float[] xs, float[] out, int from, int to) {
+		if (p.size == 0) {
+			java.util.Arrays.fill(out, from, to, 0f);
+			return;
+		}
+		double[] x = new double[BLOCK], acc = new double[BLOCK];
+		double[] pw = new double[BLOCK], base = new double[BLOCK];
+		for (int start = from; start < to; start += BLOCK) {
+			int len = Math.min(BLOCK, to - start);
+			for (int j = 0; j < len; j++) {
+				x[j] = xs[start + j];
+				acc[j] = 0;
+			}
+			int prev = p.degrees[p.size - 1];
+			for (int i = p.size - 1; i >= 0; i--) {
+				int d = p.degrees[i];
+				double c = p.coeffs[i];
+				int gap = prev - d;
+				if (gap == 0) {
+					for (int j = 0; j < len; j++) {
+						acc[j] += c;
+					}
+				} else if (gap == 1) {
+					for (int j = 0; j < len; j++) {
+						acc[j] = acc[j] * x[j] + c;
+					}
+				} else {
+					powBlock(x, len, gap, pw, base);
+					for (int j = 0; j < len; j++) {
+						acc[j] = acc[j] * pw[j] + c;
+					}
+				}
+				prev = d;
+			}
+			if (prev > 0) {
+				powBlock(x, len, prev, pw, base);
+				for (int j = 0; j < len; j++) {
+					acc[j] *= pw[j];
+				}
+			}
+			for (int j = 0; j < len; j++) {
+				out[start + j] = (float)acc[j];
+			}
+		}
+	}
+
+	/**
+	 * Sets pw[j] = x[j]^k for j < len, squaring across the whole block bit by bit.
+	 */
+	private static void powBlock(double[] x, int len, int k, double[] pw, double[] base) {
+		for (int j = 0; j < len; j++) {
+			pw[j] = 1;
+			base[j] = x[j];
+		}
+		while (true) {
+			if ((k & 1) != 0) {
+				for (int j = 0; j < len; j++) {
+					pw[j] *= base[j];
+				}
+			}
+			k >>>= 1;
+			if (k == 0) {
+				return;
+			}
+			for (int j = 0; j < len; j++) {
+				base[j] *= base[j];
+			}
+		}
+	}
+
+	private static void checkLengths(float[] xs, float[] out) {
+		if (out.length < xs.length) {
+			throw new IllegalArgumentException("Output length " + out.length +
+					" is less than number of points " + xs.length);
+		}
+	}
+
+	/**
+	 * Evaluates a range of points, halving it until it is small enough to do directly.
+	 */
+	private static class RangeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final PackedPolynomial p;
+		private final float[] xs, out;
+		private final int from, to;
+
+		RangeTask(PackedPolynomial p, float[] xs, float[] out, int from, int to) {
+			this.p = p;
+			this.xs = xs;
+			this.out = out;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from <= PARALLEL_GRAIN) {
+				evaluateRange(p, xs, out, from, to);
+				return;
+			}
+			int mid = (from + (to - from) / 2 + BLOCK - 1) / BLOCK * BLOCK;
+			invokeAll(new RangeTask(p, xs, out, from, mid), new RangeTask(p, xs, out, mid, to));
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package poly;
+
+import java.util.Arrays;
+
+/**
+ * This class implements an open-addressing hash map from degree to an integer
+ * coefficient, on primitive arrays, like DegreeMap. Sums are either exact, throwing on
+ * overflow, or reduced modulo a given modulus.
+ *
+ * @author runb-cs112
+ *
+ */
+class LongDegreeMap {
+
+	/**
+	 * Slot keys (degrees), DegreeMap.EMPTY if the slot is free.
+	 */
+	int[] keys;
+
+	/**
+	 * Slot values (coefficients), parallel to keys.
+	 */
+	long[] values;
+
+	/**
+	 * Number of occupied slots.
+	 */
+	int size;
+
+	/**
+	 * Initializes an empty map sized for the expected number of distinct degrees.
+	 *
+	 * @param expected Expected number of distinct degrees
+	 */
+	LongDegreeMap(int expected) {
+		int cap = 16;
+		while (cap < expected * 2L && cap < (1 << 30)) {
+			cap <<= 1;
+		}
+		keys = new int[cap];
+		values = new long[cap];
+		Arrays.fill(keys, DegreeMap.EMPTY);
+	}
+
+	/**
+	 * Adds a coefficient to the term of the given degree, exactly.
+	 *
+	 * @param degree Degree
+	 * @param coeff Coefficient to add
+	 * @throws ArithmeticException If the sum overflows a long
+	 */
+	void add(int degree, long coeff) {
+		int i = slot(degree);
+		values[i] = Math.addExact(values[i], coeff);
+	}
+
+	/**
+	 * Adds a coefficient to the term of the given degree, modulo a modulus.
+	 *
+	 * @param degree Degree
+	 * @param coeff Coefficient to add, in [0,modulus)
+	 * @param modulus Modulus, at most 2^62
+	 */
+	void addMod(int degree, long coeff, long modulus) {
+		int i = slot(degree);
+		long v = values[i] + coeff;
+		values[i] = v >= modulus ? v - modulus : v;
+	}
+
+	/**
+	 * Returns the degrees in the map, in ascending order.
+	 *
+	 * @return Sorted degrees
+	 */
+	int[] sortedDegrees() {
+		int[] degrees = new int[size];
+		int n = 0;
+		for (int k : keys) {
+			if (k != DegreeMap.EMPTY) {
+				degrees[n++] = k;
+			}
+		}
+		Arrays.sort(degrees);
+		return degrees;
+	}
+
+	/**
+	 * Returns the coefficient accumulated for a degree, 0 if there is none.
+	 *
+	 * @param degree Degree
+	 * @return Coefficient
+	 */
+	long get(int degree) {
+		int mask = keys.length - 1;
+		for (int i = hash(degree) & mask; keys[i] != DegreeMap.EMPTY; i = (i + 1) & mask) {
+			if (keys[i] == degree) {
+				return values[i];
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the slot of a degree, inserting it with value 0 if absent.
+	 */
+	private int slot(int degree) {
+		int mask = keys.length - 1;
+		int i = hash(degree) & mask;
+		while (true) {
+			int k = keys[i];
+			if (k == degree) {
+				return i;
+			}
+			if (k == DegreeMap.EMPTY) {
+				if ((size + 1) * 2 > keys.length) {
+					grow();
+					return slot(degree);
+				}
+				keys[i] = degree;
+				values[i] = 0;
+				size++;
+				return i;
+			}
+			i = (i + 1) & mask;
+		}
+	}
+
+	private void grow() {
+		int[] oldKeys = keys;
+		long[] oldValues = values;
+		keys = new int[oldKeys.length * 2];
+		values = new long[oldKeys.length * 2];
+		Arrays.fill(keys, DegreeMap.EMPTY);
+		int mask = keys.length - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldKeys[j] != DegreeMap.EMPTY) {
+				int i = hash(oldKeys[j]) & mask;
+				while (keys[i] != DegreeMap.EMPTY) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	private static int hash(int degree) {
+		int h = degree * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,365 @@
+package poly;
+
+import java.util.Arrays;
+
+/**
+ * This class implements a packed polynomial with exact 64-bit integer coefficients. It
+ * is held like PackedPolynomial - parallel coefficient and degree arrays, degrees strictly
+ * ascending, no zero terms - and is never changed once built.
+ *
+ * Arithmetic is exact: a result that does not fit in a long throws ArithmeticException
+ * rather than wrapping around. A product whose coefficients are bounded below 2^62 by
+ * the sizes of its operands skips the overflow checks.
+ *
+ * @author runb-cs112
+ *
+ */
+public class LongPolynomial {
+
+	/**
+	 * The zero polynomial (no terms).
+	 */
+	public static final LongPolynomial ZERO = new LongPolynomial(new long[0], new int[0], 0);
+
+	/**
+	 * Coefficients, parallel to degrees.
+	 */
+	final long[] coeffs;
+
+	/**
+	 * Degrees, strictly ascending.
+	 */
+	final int[] degrees;
+
+	/**
+	 * Number of terms in use at the front of the arrays.
+	 */
+	final int size;
+
+	/**
+	 * Initializes with arrays that are already in canonical form. The arrays are
+	 * taken over, not copied.
+	 *
+	 * @param coeffs Coefficients
+	 * @param degrees Degrees, strictly ascending
+	 * @param size Number of terms in use
+	 */
+	LongPolynomial(long[] coeffs, int[] degrees, int size) {
+		this.coeffs = coeffs;
+		this.degrees = degrees;
+		this.size = size;
+	}
+
+	/**
+	 * Builds a polynomial from coefficient and degree arrays in any order. Terms with
+	 * equal degrees are combined, and zero terms are dropped. The input arrays are not
+	 * changed.
+	 *
+	 * @param coeffs Coefficients
+	 * @param degrees Degrees, parallel to coeffs
+	 * @param size Number of terms to take from the front of the arrays
+	 * @return Polynomial in canonical form
+	 * @throws ArithmeticException If combining terms overflows a long
+	 */
+	public static LongPolynomial of(long[] coeffs, int[] degrees, int size) {
+		long[] keys = PackedPolynomial.sortKeys(degrees, size);
+		long[] outc = new long[size];
+		int[] outd = new int[size];
+		int m = 0;
+		for (int k = 0; k < size; ) {
+			int d = (int)(keys[k] >> 32);
+			long c = 0;
+			for (; k < size && (int)(keys[k] >> 32) == d; k++) {
+				c = Math.addExact(c, coeffs[(int)keys[k]]);
+			}
+			if (c != 0) {
+				outc[m] = c;
+				outd[m++] = d;
+			}
+		}
+		return new LongPolynomial(outc, outd, m);
+	}
+
+	/**
+	 * Converts a polynomial linked list, whose coefficients must all be integers. The
+	 * list is not changed.
+	 *
+	 * @param poly Polynomial (front of linked list)
+	 * @return Polynomial with the same terms
+	 * @throws ArithmeticException If a coefficient is not an integer in the range of a long
+	 */
+	public static LongPolynomial fromList(Node poly) {
+		PackedPolynomial p = PackedPolynomial.fromList(poly);
+		long[] coeffs = new long[p.size];
+		for (int i = 0; i < p.size; i++) {
+			coeffs[i] = toLong(p.coeffs[i]);
+		}
+		return new LongPolynomial(coeffs, Arrays.copyOf(p.degrees, p.size), p.size);
+	}
+
+	/**
+	 * Converts to a polynomial linked list, rounding every coefficient to float.
+	 *
+	 * @return Front of the linked list, lowest degree first, or null if the polynomial is zero
+	 */
+	public Node toList() {
+		Node front = null;
+		for (int i = size - 1; i >= 0; i--) {
+			front = new Node((float)coeffs[i], degrees[i], front);
+		}
+		return front;
+	}
+
+	/**
+	 * Returns the number of (non-zero) terms.
+	 *
+	 * @return Number of terms
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the coefficient of the i-th term, in ascending order of degree.
+	 *
+	 * @param i Term index
+	 * @return Coefficient
+	 */
+	public long coeff(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Term index " + i + " out of bounds for " + size + " terms");
+		}
+		return coeffs[i];
+	}
+
+	/**
+	 * Returns the degree of the i-th term, in ascending order of degree.
+	 *
+	 * @param i Term index
+	 * @return Degree
+	 */
+	public int degree(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Term index " + i + " out of bounds for " + size + " terms");
+		}
+		return degrees[i];
+	}
+
+	/**
+	 * Returns the highest degree, or -1 for the zero polynomial.
+	 *
+	 * @return Highest degree
+	 */
+	public int maxDegree() {
+		return size == 0 ? -1 : degrees[size - 1];
+	}
+
+	/**
+	 * Returns the sum of two polynomials. Neither input is changed.
+	 *
+	 * @param a First polynomial
+	 * @param b Second polynomial
+	 * @return Sum
+	 * @throws ArithmeticException If a coefficient of the sum overflows a long
+	 */
+	public static LongPolynomial add(LongPolynomial a, LongPolynomial b) {
+		long[] coeffs = new long[a.size + b.size];
+		int[] degrees = new int[a.size + b.size];
+		int i = 0, j = 0, n = 0;
+		while (i < a.size || j < b.size) {
+			int d;
+			long c;
+			if (j == b.size || (i < a.size && a.degrees[i] < b.degrees[j])) {
+				d = a.degrees[i];
+				c = a.coeffs[i++];
+			} else if (i == a.size || b.degrees[j] < a.degrees[i]) {
+				d = b.degrees[j];
+				c = b.coeffs[j++];
+			} else {
+				d = a.degrees[i];
+				c = Math.addExact(a.coeffs[i++], b.coeffs[j++]);
+			}
+			if (c != 0) {
+				coeffs[n] = c;
+				degrees[n++] = d;
+			}
+		}
+		return new LongPolynomial(coeffs, degrees, n);
+	}
+
+	/**
+	 * Returns the product of two polynomials. Neither input is changed. Term products
+	 * are accumulated by degree in a flat array when the degree range of the product is
+	 * small enough, in a LongDegreeMap otherwise.
+	 *
+	 * @param a First polynomial
+	 * @param b Second polynomial
+	 * @return Product
+	 * @throws ArithmeticException If a coefficient of the product, or a partial sum of
+	 * one, overflows a long
+	 */
+	public static LongPolynomial multiply(LongPolynomial a, LongPolynomial b) {
+		if (a.size == 0 || b.size == 0) {
+			return ZERO;
+		}
+		// no partial sum can exceed maxA * maxB * min(sizes); below 2^62 nothing overflows
+		double bound = (double)maxAbs(a) * maxAbs(b) * Math.min(a.size, b.size);
+		boolean checked = bound >= 0x1p62;
+		long lo = (long)a.degrees[0] + b.degrees[0];
+		long range = (long)a.maxDegree() + b.maxDegree() - lo + 1;
+		long products = (long)a.size * b.size;
+		if (range <= SparseMultiplier.FLAT_RANGE_FACTOR * products && range <= Integer.MAX_VALUE - 8) {
+			long[] acc = new long[(int)range];
+			for (int i = 0; i < a.size; i++) {
+				long c = a.coeffs[i];
+				int base = (int)(a.degrees[i] - lo);
+				if (checked) {
+					for (int j = 0; j < b.size; j++) {
+						int k = base + b.degrees[j];
+						acc[k] = Math.addExact(acc[k], Math.multiplyExact(c, b.coeffs[j]));
+					}
+				} else {
+					for (int j = 0; j < b.size; j++) {
+						acc[base + b.degrees[j]] += c * b.coeffs[j];
+					}
+				}
+			}
+			int n = 0;
+			for (long c : acc) {
+				if (c != 0) {
+					n++;
+				}
+			}
+			long[] coeffs = new long[n];
+			int[] degrees = new int[n];
+			n = 0;
+			for (int k = 0; k < acc.length; k++) {
+				if (acc[k] != 0) {
+					coeffs[n] = acc[k];
+					degrees[n++] = (int)(lo + k);
+				}
+			}
+			return new LongPolynomial(coeffs, degrees, n);
+		}
+		LongDegreeMap acc = new LongDegreeMap(SparseMultiplier.expectedDegrees(products, range, a.size, b.size));
+		for (int i = 0; i < a.size; i++) {
+			long c = a.coeffs[i];
+			int d = a.degrees[i];
+			for (int j = 0; j < b.size; j++) {
+				acc.add(d + b.degrees[j], checked ? Math.multiplyExact(c, b.coeffs[j]) : c * b.coeffs[j]);
+			}
+		}
+		int[] degrees = acc.sortedDegrees();
+		long[] coeffs = new long[degrees.length];
+		int m = 0;
+		for (int i = 0; i < degrees.length; i++) {
+			long c = acc.get(degrees[i]);
+			if (c != 0) {
+				coeffs[m] = c;
+				degrees[m++] = degrees[i];
+			}
+		}
+		return new LongPolynomial(coeffs, degrees, m);
+	}
+
+	/**
+	 * Evaluates a polynomial at an integer, exactly. The polynomial must not have negative
+	 * degrees.
+	 *
+	 * @param a Polynomial
+	 * @param x Value at which evaluation is to be done
+	 * @return Value of polynomial at x
+	 * @throws ArithmeticException If the value, or a partial sum of it, overflows a long
+	 */
+	public static long evaluate(LongPolynomial a, long x) {
+		if (a.size == 0) {
+			return 0;
+		}
+		long acc = 0;
+		int prev = a.degrees[a.size - 1];
+		for (int i = a.size - 1; i >= 0; i--) {
+			int d = a.degrees[i];
+			acc = Math.addExact(Math.multiplyExact(acc, pow(x, prev - d)), a.coeffs[i]);
+			prev = d;
+		}
+		return Math.multiplyExact(acc, pow(x, prev));
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		if (size == 0) {
+			return "0";
+		}
+		StringBuilder sb = new StringBuilder(size * 12);
+		for (int i = size - 1; i >= 0; i--) {
+			sb.append(coeffs[i]);
+			if (degrees[i] == 1) {
+				sb.append('x');
+			} else if (degrees[i] != 0) {
+				sb.append("x^").append(degrees[i]);
+			}
+			if (i > 0) {
+				sb.append(PolyFormatter.SEPARATOR);
+			}
+		}
+		return sb.toString();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	public boolean equals(Object o) {
+		if (!(o instanceof LongPolynomial)) {
+			return false;
+		}
+		LongPolynomial other = (LongPolynomial)o;
+		return Arrays.equals(coeffs, 0, size, other.coeffs, 0, other.size) &&
+				Arrays.equals(degrees, 0, size, other.degrees, 0, other.size);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode() {
+		int h = 1;
+		for (int i = 0; i < size; i++) {
+			h = 31 * (31 * h + Long.hashCode(coeffs[i])) + degrees[i];
+		}
+		return h;
+	}
+
+	/**
+	 * Converts a float coefficient that holds an integer.
+	 */
+	static long toLong(float c) {
+		if (c != Math.rint(c) || Math.abs(c) >= 0x1p63f) {
+			throw new ArithmeticException("Coefficient " + c + " is not an integer in the range of a long");
+		}
+		return (long)c;
+	}
+
+	private static long maxAbs(LongPolynomial p) {
+		long max = 0;
+		for (int i = 0; i < p.size; i++) {
+			// |Long.MIN_VALUE| does not fit; it is only a bound, so MAX_VALUE will do
+			max = Math.max(max, p.coeffs[i] == Long.MIN_VALUE ? Long.MAX_VALUE : Math.abs(p.coeffs[i]));
+		}
+		return max;
+	}
+
+	private static long pow(long x, int k) {
+		long result = 1;
+		while (k > 0) {
+			if ((k & 1) != 0) {
+				result = Math.multiplyExact(result, x);
+			}
+			k >>>= 1;
+			if (k > 0) {
+				x = Math.multiplyExact(x, x);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,124 @@
+package poly;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class implements a polynomial served straight from a memory-mapped file in the
+ * binary format of PolyBinary. Evaluation reads terms from the mapping as it goes, so
+ * nothing is parsed or copied when the file is opened.
+ *
+ * Instances are safe to share between threads: every method reads the mapping by
+ * absolute position and leaves it unchanged.
+ *
+ * @author runb-cs112
+ *
+ */
+public class MappedPolynomial {
+
+	private final ByteBuffer buf;
+	private final int count;
+	private final int maxDegree;
+	private final boolean delta;
+
+	MappedPolynomial(ByteBuffer buf, int count, int maxDegree, boolean delta) {
+		this.buf = buf;
+		this.count = count;
+		this.maxDegree = maxDegree;
+		this.delta = delta;
+	}
+
+	/**
+	 * Returns the number of terms.
+	 *
+	 * @return Number of terms
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Returns the highest degree, or -1 if there are no terms.
+	 *
+	 * @return Highest degree
+	 */
+	public int maxDegree() {
+		return maxDegree;
+	}
+
+	/**
+	 * Evaluates the polynomial at a given value, by Horner's scheme over the mapped terms.
+	 *
+	 * @param x Value at which evaluation is to be done
+	 * @return Value of polynomial at x
+	 */
+	public float evaluate(float x) {
+		if (count == 0) {
+			return 0;
+		}
+		int coeffAt = PolyBinary.HEADER_BYTES;
+		int degreeAt = coeffAt + 4 * count;
+		double acc = 0;
+		int prev = maxDegree;
+		for (int i = 0; i < count; i++) {
+			int d;
+			if (!delta) {
+				d = buf.getInt(degreeAt);
+				degreeAt += 4;
+			} else {
+				int value = 0, shift = 0;
+				byte b;
+				do {
+					b = buf.get(degreeAt++);
+					value |= (b & 0x7F) << shift;
+					shift += 7;
+				} while (b < 0);
+				d = i == 0 ? value : prev - value;
+			}
+			acc = acc * Horner.pow(x, prev - d) + buf.getFloat(coeffAt);
+			coeffAt += 4;
+			prev = d;
+		}
+		return (float)(acc * Horner.pow(x, prev));
+	}
+
+	/**
+	 * Decodes all terms into a packed polynomial.
+	 *
+	 * @return Packed polynomial
+	 */
+	public PackedPolynomial toPacked() {
+		float[] coeffs = new float[count];
+		int[] degrees = new int[count];
+		int coeffAt = PolyBinary.HEADER_BYTES;
+		int degreeAt = coeffAt + 4 * count;
+		int prev = 0;
+		for (int i = count - 1; i >= 0; i--) {
+			coeffs[i] = buf.getFloat(coeffAt);
+			coeffAt += 4;
+			if (!delta) {
+				degrees[i] = buf.getInt(degreeAt);
+				degreeAt += 4;
+			} else {
+				int value = 0, shift = 0;
+				byte b;
+				do {
+					b = buf.get(degreeAt++);
+					value |= (b & 0x7F) << shift;
+					shift += 7;
+				} while (b < 0);
+				degrees[i] = i == count - 1 ? value : prev - value;
+			}
+			prev = degrees[i];
+		}
+		return PackedPolynomial.normalize(coeffs, degrees, count);
+	}
+
+	/**
+	 * Decodes all terms into a polynomial linked list.
+	 *
+	 * @return The polynomial linked list (front node)
+	 */
+	public Node toList() {
+		return toPacked().toList();
+	}
+}
@@ -0,0 +1,521 @@
+package poly;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * This class implements a packed polynomial with integer coefficients modulo a prime,
+ * for exact products that can never overflow. It is held like PackedPolynomial -
+ * parallel coefficient and degree arrays, degrees strictly ascending, no zero terms -
+ * with every coefficient in [0,modulus), and is never changed once built.
+ *
+ * Dense products are computed with the number-theoretic transform (an FFT over the
+ * integers modulo the prime, with no rounding) when the prime has large enough roots
+ * of unity, as primes of the form c*2^k+1 do. Other products accumulate their term
+ * products by degree, each reduced before it is added.
+ *
+ * @author runb-cs112
+ *
+ */
+public class ModPolynomial {
+
+	/**
+	 * A prime of the form 7*2^20+1, below 2^24, so that residues convert to float
+	 * exactly and transforms of up to 2^20 points are possible.
+	 */
+	public static final int DEFAULT_MODULUS = 7340033;
+
+	/**
+	 * Shorter operand length from which dense products use the transform.
+	 */
+	static final int NTT_THRESHOLD = 64;
+
+	/**
+	 * Modulus and primitive root of the last transform, packed as modulus << 32 | root.
+	 */
+	private static volatile long cachedRoot;
+
+	/**
+	 * Coefficients in [0,modulus), parallel to degrees.
+	 */
+	final int[] coeffs;
+
+	/**
+	 * Degrees, strictly ascending.
+	 */
+	final int[] degrees;
+
+	/**
+	 * Number of terms in use at the front of the arrays.
+	 */
+	final int size;
+
+	/**
+	 * Prime modulus.
+	 */
+	final int modulus;
+
+	/**
+	 * Initializes with arrays that are already in canonical form. The arrays are
+	 * taken over, not copied.
+	 *
+	 * @param coeffs Coefficients, in [0,modulus)
+	 * @param degrees Degrees, strictly ascending
+	 * @param size Number of terms in use
+	 * @param modulus Prime modulus
+	 */
+	ModPolynomial(int[] coeffs, int[] degrees, int size, int modulus) {
+		this.coeffs = coeffs;
+		this.degrees = degrees;
+		this.size = size;
+		this.modulus = modulus;
+	}
+
+	/**
+	 * Returns the zero polynomial modulo a prime.
+	 *
+	 * @param modulus Prime modulus
+	 * @return Zero polynomial
+	 * @throws IllegalArgumentException If the modulus is not prime
+	 */
+	public static ModPolynomial zero(int modulus) {
+		checkModulus(modulus);
+		return new ModPolynomial(new int[0], new int[0], 0, modulus);
+	}
+
+	/**
+	 * Builds a polynomial from coefficient and degree arrays in any order. Coefficients
+	 * are reduced modulo the prime (negative ones too), terms with equal degrees are
+	 * combined, and zero terms are dropped. The input arrays are not changed.
+	 *
+	 * @param coeffs Coefficients
+	 * @param degrees Degrees, parallel to coeffs
+	 * @param size Number of terms to take from the front of the arrays
+	 * @param modulus Prime modulus
+	 * @return Polynomial in canonical form
+	 * @throws IllegalArgumentException If the modulus is not prime
+	 */
+	public static ModPolynomial of(long[] coeffs, int[] degrees, int size, int modulus) {
+		checkModulus(modulus);
+		long[] keys = PackedPolynomial.sortKeys(degrees, size);
+		int[] outc = new int[size];
+		int[] outd = new int[size];
+		int m = 0;
+		for (int k = 0; k < size; ) {
+			int d = (int)(keys[k] >> 32);
+			long c = 0;
+			for (; k < size && (int)(keys[k] >> 32) == d; k++) {
+				c = (c + Math.floorMod(coeffs[(int)keys[k]], modulus)) % modulus;
+			}
+			if (c != 0) {
+				outc[m] = (int)c;
+				outd[m++] = d;
+			}
+		}
+		return new ModPolynomial(outc, outd, m, modulus);
+	}
+
+	/**
+	 * Converts a polynomial linked list, whose coefficients must all be integers, reducing
+	 * them modulo the prime. The list is not changed.
+	 *
+	 * @param poly Polynomial (front of linked list)
+	 * @param modulus Prime modulus
+	 * @return Polynomial with the same terms, reduced
+	 * @throws ArithmeticException If a coefficient is not an integer
+	 * @throws IllegalArgumentException If the modulus is not prime
+	 */
+	public static ModPolynomial fromList(Node poly, int modulus) {
+		PackedPolynomial p = PackedPolynomial.fromList(poly);
+		long[] coeffs = new long[p.size];
+		for (int i = 0; i < p.size; i++) {
+			coeffs[i] = LongPolynomial.toLong(p.coeffs[i]);
+		}
+		return of(coeffs, p.degrees, p.size, modulus);
+	}
+
+	/**
+	 * Converts to a polynomial linked list of the residues, as floats. The conversion is
+	 * exact for a modulus below 2^24, such as DEFAULT_MODULUS.
+	 *
+	 * @return Front of the linked list, lowest degree first, or null if the polynomial is zero
+	 */
+	public Node toList() {
+		Node front = null;
+		for (int i = size - 1; i >= 0; i--) {
+			front = new Node(coeffs[i], degrees[i], front);
+		}
+		return front;
+	}
+
+	/**
+	 * Returns the number of (non-zero) terms.
+	 *
+	 * @return Number of terms
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the prime modulus.
+	 *
+	 * @return Modulus
+	 */
+	public int modulus() {
+		return modulus;
+	}
+
+	/**
+	 * Returns the coefficient of the i-th term, in ascending order of degree.
+	 *
+	 * @param i Term index
+	 * @return Coefficient, in [1,modulus)
+	 */
+	public int coeff(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Term index " + i + " out of bounds for " + size + " terms");
+		}
+		return coeffs[i];
+	}
+
+	/**
+	 * Returns the degree of the i-th term, in ascending order of degree.
+	 *
+	 * @param i Term index
+	 * @return Degree
+	 */
+	public int degree(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Term index " + i + " out of bounds for " + size + " terms");
+		}
+		return degrees[i];
+	}
+
+	/**
+	 * Returns the highest degree, or -1 for the zero polynomial.
+	 *
+	 * @return Highest degree
+	 */
+	public int maxDegree() {
+		return size == 0 ? -1 : degrees[size - 1];
+	}
+
+	/**
+	 * Returns the sum of two polynomials with the same modulus. Neither input is changed.
+	 *
+	 * @param a First polynomial
+	 * @param b Second polynomial
+	 * @return Sum
+	 * @throws IllegalArgumentException If the moduli differ
+	 */
+	public static ModPolynomial add(ModPolynomial a, ModPolynomial b) {
+		int p = sameModulus(a, b);
+		int[] coeffs = new int[a.size + b.size];
+		int[] degrees = new int[a.size + b.size];
+		int i = 0, j = 0, n = 0;
+		while (i < a.size || j < b.size) {
+			int d, c;
+			if (j == b.size || (i < a.size && a.degrees[i] < b.degrees[j])) {
+				d = a.degrees[i];
+				c = a.coeffs[i++];
+			} else if (i == a.size || b.degrees[j] < a.degrees[i]) {
+				d = b.degrees[j];
+				c = b.coeffs[j++];
+			} else {
+				d = a.degrees[i];
+				long s = (long)a.coeffs[i++] + b.coeffs[j++];
+				c = (int)(s >= p ? s - p : s);
+			}
+			if (c != 0) {
+				coeffs[n] = c;
+				degrees[n++] = d;
+			}
+		}
+		return new ModPolynomial(coeffs, degrees, n, p);
+	}
+
+	/**
+	 * Returns the product of two polynomials with the same modulus. Neither input is changed.
+	 *
+	 * @param a First polynomial
+	 * @param b Second polynomial
+	 * @return Product
+	 * @throws IllegalArgumentException If the moduli differ
+	 */
+	public static ModPolynomial multiply(ModPolynomial a, ModPolynomial b) {
+		int p = sameModulus(a, b);
+		if (a.size == 0 || b.size == 0) {
+			return new ModPolynomial(new int[0], new int[0], 0, p);
+		}
+		long lo = (long)a.degrees[0] + b.degrees[0];
+		long range = (long)a.maxDegree() + b.maxDegree() - lo + 1;
+		if (isDense(a) && isDense(b) && Math.min(a.size, b.size) >= NTT_THRESHOLD) {
+			int length = Integer.highestOneBit((int)Math.min(range, 1 << 30) - 1) << 1;
+			if (range <= 1 << 30 && (p - 1) % length == 0) {
+				return fromDense(ntt(toDense(a), toDense(b), length, p), (int)lo, p);
+			}
+		}
+		long products = (long)a.size * b.size;
+		if (range <= SparseMultiplier.FLAT_RANGE_FACTOR * products && range <= Integer.MAX_VALUE - 8) {
+			// each reduced product is below 2^31, and at most min(sizes) < 2^31 of them meet
+			// at one degree, so the sums cannot overflow
+			long[] acc = new long[(int)range];
+			for (int i = 0; i < a.size; i++) {
+				long c = a.coeffs[i];
+				int base = (int)(a.degrees[i] - lo);
+				for (int j = 0; j < b.size; j++) {
+					acc[base + b.degrees[j]] += c * b.coeffs[j] % p;
+				}
+			}
+			for (int k = 0; k < acc.length; k++) {
+				acc[k] %= p;
+			}
+			return fromDense(acc, (int)lo, p);
+		}
+		LongDegreeMap acc = new LongDegreeMap(SparseMultiplier.expectedDegrees(products, range, a.size, b.size));
+		for (int i = 0; i < a.size; i++) {
+			long c = a.coeffs[i];
+			int d = a.degrees[i];
+			for (int j = 0; j < b.size; j++) {
+				acc.addMod(d + b.degrees[j], c * b.coeffs[j] % p, p);
+			}
+		}
+		int[] degrees = acc.sortedDegrees();
+		int[] coeffs = new int[degrees.length];
+		int m = 0;
+		for (int i = 0; i < degrees.length; i++) {
+			int c = (int)acc.get(degrees[i]);
+			if (c != 0) {
+				coeffs[m] = c;
+				degrees[m++] = degrees[i];
+			}
+		}
+		return new ModPolynomial(coeffs, degrees, m, p);
+	}
+
+	/**
+	 * Evaluates a polynomial at an integer, modulo its prime. The polynomial must not have
+	 * negative degrees.
+	 *
+	 * @param a Polynomial
+	 * @param x Value at which evaluation is to be done
+	 * @return Value of polynomial at x, in [0,modulus)
+	 */
+	public static int evaluate(ModPolynomial a, long x) {
+		if (a.size == 0) {
+			return 0;
+		}
+		long p = a.modulus;
+		x = Math.floorMod(x, p);
+		long acc = 0;
+		int prev = a.degrees[a.size - 1];
+		for (int i = a.size - 1; i >= 0; i--) {
+			int d = a.degrees[i];
+			acc = (acc * modPow(x, prev - d, p) + a.coeffs[i]) % p;
+			prev = d;
+		}
+		return (int)(acc * modPow(x, prev, p) % p);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		if (size == 0) {
+			return "0";
+		}
+		StringBuilder sb = new StringBuilder(size * 12);
+		for (int i = size - 1; i >= 0; i--) {
+			sb.append(coeffs[i]);
+			if (degrees[i] == 1) {
+				sb.append('x');
+			} else if (degrees[i] != 0) {
+				sb.append("x^").append(degrees[i]);
+			}
+			if (i > 0) {
+				sb.append(PolyFormatter.SEPARATOR);
+			}
+		}
+		return sb.toString();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	public boolean equals(Object o) {
+		if (!(o instanceof ModPolynomial)) {
+			return false;
+		}
+		ModPolynomial other = (ModPolynomial)o;
+		return modulus == other.modulus &&
+				Arrays.equals(coeffs, 0, size, other.coeffs, 0, other.size) &&
+				Arrays.equals(degrees, 0, size, other.degrees, 0, other.size);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode() {
+		int h = modulus;
+		for (int i = 0; i < size; i++) {
+			h = 31 * (31 * h + coeffs[i]) + degrees[i];
+		}
+		return h;
+	}
+
+	private static void checkModulus(int modulus) {
+		if (modulus < 2 || !BigInteger.valueOf(modulus).isProbablePrime(30)) {
+			throw new IllegalArgumentException("Modulus " + modulus + " is not a prime");
+		}
+	}
+
+	private static int sameModulus(ModPolynomial a, ModPolynomial b) {
+		if (a.modulus != b.modulus) {
+			throw new IllegalArgumentException("Different moduli: " + a.modulus + " and " + b.modulus);
+		}
+		return a.modulus;
+	}
+
+	/**
+	 * Dense means at least half the degrees in its range have terms.
+	 */
+	private static boolean isDense(ModPolynomial p) {
+		return 2L * p.size >= (long)p.maxDegree() - p.degrees[0] + 1;
+	}
+
+	private static long[] toDense(ModPolynomial p) {
+		int lo = p.degrees[0];
+		long[] dense = new long[p.maxDegree() - lo + 1];
+		for (int i = 0; i < p.size; i++) {
+			dense[p.degrees[i] - lo] = p.coeffs[i];
+		}
+		return dense;
+	}
+
+	private static ModPolynomial fromDense(long[] acc, int lo, int p) {
+		int n = 0;
+		for (long c : acc) {
+			if (c != 0) {
+				n++;
+			}
+		}
+		int[] coeffs = new int[n];
+		int[] degrees = new int[n];
+		n = 0;
+		for (int k = 0; k < acc.length; k++) {
+			if (acc[k] != 0) {
+				coeffs[n] = (int)acc[k];
+				degrees[n++] = lo + k;
+			}
+		}
+		return new ModPolynomial(coeffs, degrees, n, p);
+	}
+
+	/**
+	 * Cyclic convolution of a and b by transform, on length points (a power of two that
+	 * divides p-1 and covers the whole product). Returns the product's coefficients.
+	 */
+	private static long[] ntt(long[] a, long[] b, int length, int p) {
+		long g = primitiveRoot(p);
+		long[] fa = Arrays.copyOf(a, length), fb = Arrays.copyOf(b, length);
+		transform(fa, g, p, false);
+		transform(fb, g, p, false);
+		for (int i = 0; i < length; i++) {
+			fa[i] = fa[i] * fb[i] % p;
+		}
+		transform(fa, g, p, true);
+		long scale = modPow(length, p - 2, p);
+		long[] out = new long[a.length + b.length - 1];
+		for (int i = 0; i < out.length; i++) {
+			out[i] = fa[i] * scale % p;
+		}
+		return out;
+	}
+
+	/**
+	 * In-place iterative transform of a power-of-two length array, values in [0,p).
+	 */
+	private static void transform(long[] a, long g, long p, boolean inverse) {
+		int n = a.length;
+		for (int i = 1, j = 0; i < n; i++) {
+			int bit = n >> 1;
+			for (; (j & bit) != 0; bit >>= 1) {
+				j ^= bit;
+			}
+			j ^= bit;
+			if (i < j) {
+				long t = a[i]; a[i] = a[j]; a[j] = t;
+			}
+		}
+		long[] w = new long[n >> 1];
+		for (int size = 2; size <= n; size <<= 1) {
+			long root = modPow(g, (p - 1) / size, p);
+			if (inverse) {
+				root = modPow(root, p - 2, p);
+			}
+			int h = size >> 1;
+			w[0] = 1;
+			for (int k = 1; k < h; k++) {
+				w[k] = w[k - 1] * root % p;
+			}
+			for (int start = 0; start < n; start += size) {
+				for (int k = 0; k < h; k++) {
+					int i = start + k, j = i + h;
+					long u = a[i], v = a[j] * w[k] % p;
+					long s = u + v, d = u - v;
+					a[i] = s >= p ? s - p : s;
+					a[j] = d < 0 ? d + p : d;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns a primitive root modulo the prime p, the smallest generator of its
+	 * multiplicative group.
+	 */
+	static long primitiveRoot(int p) {
+		long cached = cachedRoot;
+		if ((int)(cached >>> 32) == p) {
+			return (int)cached;
+		}
+		int[] factors = new int[32];
+		int count = 0;
+		int rest = p - 1;
+		for (int f = 2; (long)f * f <= rest; f++) {
+			if (rest % f == 0) {
+				factors[count++] = f;
+				while (rest % f == 0) {
+					rest /= f;
+				}
+			}
+		}
+		if (rest > 1) {
+			factors[count++] = rest;
+		}
+		for (long g = 2; ; g++) {
+			boolean generator = true;
+			for (int i = 0; i < count && generator; i++) {
+				generator = modPow(g, (p - 1) / factors[i], p) != 1;
+			}
+			if (generator) {
+				cachedRoot = ((long)p << 32) | g;
+				return g;
+			}
+		}
+	}
+
+	private static long modPow(long x, long k, long p) {
+		long result = 1;
+		x %= p;
+		while (k > 0) {
+			if ((k & 1) != 0) {
+				result = result * x % p;
+			}
+			x = x * x % p;
+			k >>>= 1;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,369 @@
+package poly;
+
+import java.util.Arrays;
+
+/**
+ * This class implements a packed polynomial, held in two parallel primitive arrays:
+ * coefficients and degrees, sorted in ascending order of degree (the same order
+ * as the terms of a polynomial linked list, front to back). Each term costs 8 bytes
+ * of array storage, against roughly 48 bytes for a Node plus its Term.
+ *
+ * A packed polynomial is in canonical form: degrees are strictly ascending, and
+ * there are no terms with zero coefficient. Instances are never changed once built.
+ *
+ * @author runb-cs112
+ *
+ */
+public class PackedPolynomial {
+
+	/**
+	 * The zero polynomial (no terms).
+	 */
+	public static final PackedPolynomial ZERO = new PackedPolynomial(new float[0], new int[0], 0);
+
+	/**
+	 * Coefficients, parallel to degrees.
+	 */
+	final float[] coeffs;
+
+	/**
+	 * Degrees, strictly ascending.
+	 */
+	final int[] degrees;
+
+	/**
+	 * Number of terms in use at the front of the arrays.
+	 */
+	final int size;
+
+	/**
+	 * Initializes with arrays that are already in canonical form. The arrays are
+	 * taken over, not copied.
+	 *
+	 * @param coeffs Coefficients
+	 * @param degrees Degrees, strictly ascending
+	 * @param size Number of terms in use
+	 */
+	PackedPolynomial(float[] coeffs, int[] degrees, int size) {
+		this.coeffs = coeffs;
+		this.degrees = degrees;
+		this.size = size;
+	}
+
+	/**
+	 * Builds a packed polynomial from coefficient and degree arrays in any order. Terms
+	 * with equal degrees are combined, and zero terms are dropped. The input arrays
+	 * are not changed.
+	 *
+	 * @param coeffs Coefficients
+	 * @param degrees Degrees, parallel to coeffs
+	 * @param size Number of terms to take from the front of the arrays
+	 * @return Packed polynomial in canonical form
+	 */
+	public static PackedPolynomial of(float[] coeffs, int[] degrees, int size) {
+		return normalize(Arrays.copyOf(coeffs, size), Arrays.copyOf(degrees, size), size);
+	}
+
+	/**
+	 * Packs a polynomial linked list. The list is not changed.
+	 *
+	 * @param poly Polynomial (front of linked list)
+	 * @return Packed polynomial with the same terms
+	 */
+	public static PackedPolynomial fromList(Node poly) {
+		int n = 0;
+		for (Node ptr = poly; ptr != null; ptr = ptr.next) {
+			n++;
+		}
+		float[] coeffs = new float[n];
+		int[] degrees = new int[n];
+		int i = 0;
+		for (Node ptr = poly; ptr != null; ptr = ptr.next) {
+			coeffs[i] = ptr.term.coeff;
+			degrees[i] = ptr.term.degree;
+			i++;
+		}
+		return normalize(coeffs, degrees, n);
+	}
+
+	/**
+	 * Unpacks into a polynomial linked list of all new nodes, lowest degree at the front.
+	 *
+	 * @return Front of the linked list, or null for the zero polynomial
+	 */
+	public Node toList() {
+		Node front = null;
+		for (int i = size - 1; i >= 0; i--) {
+			front = new Node(coeffs[i], degrees[i], front);
+		}
+		return front;
+	}
+
+	/**
+	 * Returns the number of (non-zero) terms.
+	 *
+	 * @return Number of terms
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the coefficient of the i-th term, in ascending order of degree.
+	 *
+	 * @param i Term index
+	 * @return Coefficient
+	 */
+	public float coeff(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Term index " + i + " out of bounds for " + size + " terms");
+		}
+		return coeffs[i];
+	}
+
+	/**
+	 * Returns the degree of the i-th term, in ascending order of degree.
+	 *
+	 * @param i Term index
+	 * @return Degree
+	 */
+	public int degree(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Term index " + i + " out of bounds for " + size + " terms");
+		}
+		return degrees[i];
+	}
+
+	/**
+	 * Returns the highest degree, or -1 for the zero polynomial.
+	 *
+	 * @return Highest degree
+	 */
+	public int maxDegree() {
+		return size == 0 ? -1 : degrees[size - 1];
+	}
+
+	/**
+	 * Returns the lowest degree, or -1 for the zero polynomial.
+	 *
+	 * @return Lowest degree
+	 */
+	public int minDegree() {
+		return size == 0 ? -1 : degrees[0];
+	}
+
+	/**
+	 * Returns the terms [from,to), in ascending order of degree, as a polynomial of their own.
+	 *
+	 * @param from Index of first term
+	 * @param to Index after last term
+	 * @return Packed polynomial of the terms in range
+	 */
+	PackedPolynomial slice(int from, int to) {
+		return new PackedPolynomial(Arrays.copyOfRange(coeffs, from, to),
+				Arrays.copyOfRange(degrees, from, to), to - from);
+	}
+
+	/**
+	 * Returns the sum of two packed polynomials. Neither input is changed.
+	 *
+	 * @param a First polynomial
+	 * @param b Second polynomial
+	 * @return Sum
+	 */
+	public static PackedPolynomial add(PackedPolynomial a, PackedPolynomial b) {
+		if (a.size == 0) {
+			return b;
+		}
+		if (b.size == 0) {
+			return a;
+		}
+		float[] coeffs = new float[a.size + b.size];
+		int[] degrees = new int[a.size + b.size];
+		int n = merge(a.coeffs, a.degrees, a.size, b.coeffs, b.degrees, b.size, 1, 0, coeffs, degrees);
+		return new PackedPolynomial(coeffs, degrees, n);
+	}
+
+	/**
+	 * Returns the product of two packed polynomials. Neither input is changed. When both
+	 * operands are dense, DenseMultiplier is used; otherwise SparseMultiplier.
+	 *
+	 * @param a First polynomial
+	 * @param b Second polynomial
+	 * @return Product
+	 */
+	public static PackedPolynomial multiply(PackedPolynomial a, PackedPolynomial b) {
+		if (DenseMultiplier.isDense(a) && DenseMultiplier.isDense(b)) {
+			return DenseMultiplier.multiply(a, b);
+		}
+		return SparseMultiplier.multiply(a, b);
+	}
+
+	/**
+	 * Returns the terms of degree at most maxDegree of the product of two packed
+	 * polynomials. Operands are cut to the degrees that can contribute before they are
+	 * multiplied, and terms above maxDegree are never part of the result.
+	 *
+	 * @param a First polynomial
+	 * @param b Second polynomial
+	 * @param maxDegree Highest degree to keep
+	 * @return Truncated product
+	 */
+	public static PackedPolynomial multiply(PackedPolynomial a, PackedPolynomial b, int maxDegree) {
+		if (a.size == 0 || b.size == 0) {
+			return ZERO;
+		}
+		a = a.truncate(maxDegree - b.minDegree());
+		b = b.truncate(maxDegree - a.minDegree());
+		if (DenseMultiplier.isDense(a) && DenseMultiplier.isDense(b)) {
+			return DenseMultiplier.multiply(a, b).truncate(maxDegree);
+		}
+		return SparseMultiplier.multiply(a, b, maxDegree);
+	}
+
+	/**
+	 * Returns the terms of degree at most maxDegree.
+	 *
+	 * @param maxDegree Highest degree to keep
+	 * @return This polynomial if it has no higher terms, else a new one without them
+	 */
+	public PackedPolynomial truncate(int maxDegree) {
+		if (size == 0 || degrees[size - 1] <= maxDegree) {
+			return this;
+		}
+		int n = Arrays.binarySearch(degrees, 0, size, maxDegree);
+		n = n >= 0 ? n + 1 : -n - 1;
+		return n == 0 ? ZERO : slice(0, n);
+	}
+
+	/**
+	 * Evaluates a packed polynomial at a given value.
+	 *
+	 * @param a Polynomial
+	 * @param x Value at which evaluation is to be done
+	 * @return Value of polynomial at x
+	 */
+	public static float evaluate(PackedPolynomial a, float x) {
+		return Horner.evaluate(a, x);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return PolyFormatter.toString(this);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	public boolean equals(Object o) {
+		if (!(o instanceof PackedPolynomial)) {
+			return false;
+		}
+		PackedPolynomial other = (PackedPolynomial)o;
+		return Arrays.equals(coeffs, 0, size, other.coeffs, 0, other.size) &&
+				Arrays.equals(degrees, 0, size, other.degrees, 0, other.size);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode() {
+		int h = 1;
+		for (int i = 0; i < size; i++) {
+			h = 31 * (31 * h + Float.floatToIntBits(coeffs[i])) + degrees[i];
+		}
+		return h;
+	}
+
+	/**
+	 * Merges (x) with (scale * y * x^shift) into the output arrays, dropping zero sums.
+	 * Both inputs must be strictly ascending in degree.
+	 *
+	 * @return Number of terms written to the output arrays
+	 */
+	static int merge(float[] xc, int[] xd, int xn, float[] yc, int[] yd, int yn,
+			float scale, int shift, float[] outc, int[] outd) {
+		int i = 0, j = 0, n = 0;
+		while (i < xn && j < yn) {
+			int dx = xd[i], dy = yd[j] + shift;
+			float c;
+			int d;
+			if (dx == dy) {
+				c = xc[i++] + scale * yc[j++];
+				d = dx;
+			} else if (dx < dy) {
+				c = xc[i++];
+				d = dx;
+			} else {
+				c = scale * yc[j++];
+				d = dy;
+			}
+			if (c != 0) {
+				outc[n] = c;
+				outd[n++] = d;
+			}
+		}
+		for (; i < xn; i++) {
+			outc[n] = xc[i];
+			outd[n++] = xd[i];
+		}
+		for (; j < yn; j++) {
+			float c = scale * yc[j];
+			if (c != 0) {
+				outc[n] = c;
+				outd[n++] = yd[j] + shift;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Puts arrays into canonical form, in place when they are already sorted.
+	 */
+	static PackedPolynomial normalize(float[] coeffs, int[] degrees, int n) {
+		boolean canonical = true;
+		for (int i = 0; i < n && canonical; i++) {
+			canonical = coeffs[i] != 0 && (i == 0 || degrees[i - 1] < degrees[i]);
+		}
+		if (canonical) {
+			return new PackedPolynomial(coeffs, degrees, n);
+		}
+
+		long[] keys = sortKeys(degrees, n);
+		float[] outc = new float[n];
+		int[] outd = new int[n];
+		int m = 0;
+		for (int k = 0; k < n; ) {
+			int d = (int)(keys[k] >> 32);
+			float c = 0;
+			for (; k < n && (int)(keys[k] >> 32) == d; k++) {
+				c += coeffs[(int)keys[k]];
+			}
+			if (c != 0) {
+				outc[m] = c;
+				outd[m++] = d;
+			}
+		}
+		return new PackedPolynomial(outc, outd, m);
+	}
+
+	/**
+	 * Returns (degree, original position) keys for the first n degrees, sorted, so terms
+	 * of equal degree can be combined in input order: degree is key >> 32, position is
+	 * (int)key.
+	 *
+	 * @param degrees Degrees
+	 * @param n Number of degrees to take from the front of the array
+	 * @return Sorted keys
+	 */
+	static long[] sortKeys(int[] degrees, int n) {
+		long[] keys = new long[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = ((long)degrees[i] << 32) | i;
+		}
+		Arrays.sort(keys);
+		return keys;
+	}
+}
@@ -0,0 +1,74 @@
+package poly;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class times ParallelPoly.multiply and ParallelPoly.sumAll with pools of
+ * increasing parallelism, up to the number of available processors, and prints
+ * the speedup over one worker.
+ * <pre>
+ *     java poly.ParallelBench [terms [degreeSpread [polysToSum]]]
+ * </pre>
+ *
+ * @author runb-cs112
+ *
+ */
+public class ParallelBench {
+
+	static final int WARMUP = 3;
+	static final int RUNS = 5;
+
+	public static void main(String[] args) {
+		int terms = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+		int spread = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+		int count = args.length > 2 ? Integer.parseInt(args[2]) : 1024;
+
+		Random rand = new Random(42);
+		Node poly1 = PolyGen.sparse(rand, terms, spread);
+		Node poly2 = PolyGen.sparse(rand, terms, spread);
+		List<Node> polys = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			polys.add(PolyGen.sparse(rand, terms, spread));
+		}
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.println("multiply " + terms + " x " + terms + " terms, sumAll of " + count +
+				" polynomials of " + terms + " terms, " + cores + " processors");
+		System.out.println("threads\tmultiply ms\tspeedup\tsumAll ms\tspeedup");
+		double baseMultiply = 0, baseSum = 0;
+		for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			double multiply = time(() -> ParallelPoly.multiply(poly1, poly2, pool));
+			double sum = time(() -> ParallelPoly.sumAll(polys, pool));
+			pool.shutdown();
+			if (threads == 1) {
+				baseMultiply = multiply;
+				baseSum = sum;
+			}
+			System.out.printf("%d\t%.1f\t\t%.2f\t%.1f\t\t%.2f%n", threads, multiply, baseMultiply / multiply,
+					sum, baseSum / sum);
+			if (threads == cores) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Returns the best time of RUNS runs after WARMUP runs, in milliseconds.
+	 */
+	private static double time(Runnable op) {
+		for (int i = 0; i < WARMUP; i++) {
+			op.run();
+		}
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < RUNS; i++) {
+			long start = System.nanoTime();
+			op.run();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best / 1e6;
+	}
+}
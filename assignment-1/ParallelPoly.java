@@ -0,0 +1,178 @@
+package poly;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This class implements fork-join versions of multiply, and of sums and products of
+ * many polynomials. Multiply splits the first operand into term ranges, multiplies each
+ * range by the second operand in its own task, and adds the partial products back up
+ * the same task tree, so the reduction is parallel as well. Sums and products of many
+ * polynomials are reduced as a balanced tree instead of a left fold.
+ *
+ * Dense products big enough for FFT convolution are not split: one transform of the
+ * whole product is cheaper than one per range.
+ *
+ * The methods without a pool argument run in the common pool.
+ *
+ * @author runb-cs112
+ *
+ */
+public class ParallelPoly {
+
+	/**
+	 * Term products below which a multiply task does its range directly.
+	 */
+	static final long MULTIPLY_GRAIN = 1 << 16;
+
+	// prevent instantiation
+	private ParallelPoly() { }
+
+	/**
+	 * Returns the product of two polynomials - DOES NOT change either of the input polynomials.
+	 * The returned polynomial has all new nodes.
+	 *
+	 * @param poly1 First input polynomial (front of polynomial linked list)
+	 * @param poly2 Second input polynomial (front of polynomial linked list)
+	 * @param pool Pool to run in
+	 * @return A new polynomial which is the product of the input polynomials
+	 */
+	public static Node multiply(Node poly1, Node poly2, ForkJoinPool pool) {
+		return multiply(PackedPolynomial.fromList(poly1), PackedPolynomial.fromList(poly2), pool).toList();
+	}
+
+	/**
+	 * Returns the product of two packed polynomials.
+	 *
+	 * @param a First polynomial
+	 * @param b Second polynomial
+	 * @param pool Pool to run in
+	 * @return Product
+	 */
+	public static PackedPolynomial multiply(PackedPolynomial a, PackedPolynomial b, ForkJoinPool pool) {
+		if (a.size < b.size) {
+			PackedPolynomial t = a; a = b; b = t;
+		}
+		if (b.size == 0) {
+			return PackedPolynomial.ZERO;
+		}
+		if ((long)a.size * b.size <= MULTIPLY_GRAIN || DenseMultiplier.usesFft(a, b)) {
+			return PackedPolynomial.multiply(a, b);
+		}
+		MultiplyTask task = new MultiplyTask(a, b, 0, a.size);
+		return ForkJoinTask.getPool() == pool ? task.invoke() : pool.invoke(task);
+	}
+
+	/**
+	 * Returns the sum of all polynomials in a list. None of the inputs is changed, and the
+	 * result has all new nodes.
+	 *
+	 * @param polys Polynomials (fronts of linked lists)
+	 * @return Sum, null if the list is empty or the sum is zero
+	 */
+	public static Node sumAll(List<Node> polys) {
+		return sumAll(polys, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Returns the sum of all polynomials in a list, computed in the given pool.
+	 *
+	 * @param polys Polynomials (fronts of linked lists)
+	 * @param pool Pool to run in
+	 * @return Sum, null if the list is empty or the sum is zero
+	 */
+	public static Node sumAll(List<Node> polys, ForkJoinPool pool) {
+		if (polys.isEmpty()) {
+			return null;
+		}
+		return pool.invoke(new ReduceTask(polys.toArray(new Node[0]), 0, polys.size(), false, pool)).toList();
+	}
+
+	/**
+	 * Returns the product of all polynomials in a list. None of the inputs is changed, and
+	 * the result has all new nodes.
+	 *
+	 * @param polys Polynomials (fronts of linked lists)
+	 * @return Product, null if the list is empty or the product is zero
+	 */
+	public static Node productAll(List<Node> polys) {
+		return productAll(polys, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Returns the product of all polynomials in a list, computed in the given pool.
+	 *
+	 * @param polys Polynomials (fronts of linked lists)
+	 * @param pool Pool to run in
+	 * @return Product, null if the list is empty or the product is zero
+	 */
+	public static Node productAll(List<Node> polys, ForkJoinPool pool) {
+		if (polys.isEmpty()) {
+			return null;
+		}
+		return pool.invoke(new ReduceTask(polys.toArray(new Node[0]), 0, polys.size(), true, pool)).toList();
+	}
+
+	/**
+	 * Multiplies terms [from,to) of a by all of b.
+	 */
+	private static class MultiplyTask extends RecursiveTask<PackedPolynomial> {
+		private static final long serialVersionUID = 1L;
+
+		private final PackedPolynomial a, b;
+		private final int from, to;
+
+		MultiplyTask(PackedPolynomial a, PackedPolynomial b, int from, int to) {
+			this.a = a;
+			this.b = b;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected PackedPolynomial compute() {
+			if ((long)(to - from) * b.size <= MULTIPLY_GRAIN || to - from == 1) {
+				return PackedPolynomial.multiply(a.slice(from, to), b);
+			}
+			int mid = (from + to) >>> 1;
+			MultiplyTask right = new MultiplyTask(a, b, mid, to);
+			right.fork();
+			PackedPolynomial left = new MultiplyTask(a, b, from, mid).compute();
+			return PackedPolynomial.add(left, right.join());
+		}
+	}
+
+	/**
+	 * Sums or multiplies polys[from,to) as a balanced tree. Products are split further
+	 * by the multiply task, so large pairwise products near the root still use every worker.
+	 */
+	private static class ReduceTask extends RecursiveTask<PackedPolynomial> {
+		private static final long serialVersionUID = 1L;
+
+		private final Node[] polys;
+		private final int from, to;
+		private final boolean product;
+		private final ForkJoinPool pool;
+
+		ReduceTask(Node[] polys, int from, int to, boolean product, ForkJoinPool pool) {
+			this.polys = polys;
+			this.from = from;
+			this.to = to;
+			this.product = product;
+			this.pool = pool;
+		}
+
+		protected PackedPolynomial compute() {
+			if (to - from == 1) {
+				return PackedPolynomial.fromList(polys[from]);
+			}
+			int mid = (from + to) >>> 1;
+			ReduceTask right = new ReduceTask(polys, mid, to, product, pool);
+			right.fork();
+			PackedPolynomial left = new ReduceTask(polys, from, mid, product, pool).compute();
+			PackedPolynomial r = right.join();
+			return product ? multiply(left, r, pool) : PackedPolynomial.add(left, r);
+		}
+	}
+}
@@ -0,0 +1,331 @@
+package poly;
+
+import java.util.Arrays;
+
+/**
+ * This class implements division with remainder, modular reduction and powering of
+ * polynomials, on top of the fast multiply of PackedPolynomial.
+ *
+ * Division by a large dense divisor uses Newton iteration: the quotient is the reversed
+ * dividend times the power-series inverse of the reversed divisor, and the inverse is
+ * found by doubling its precision each step, g = g(2 - fg), so the whole division costs
+ * a few multiplications. Other divisions are done term by term, touching only the
+ * non-zero terms of the divisor.
+ *
+ * Powers are computed by repeated squaring; truncated powers drop every term above the
+ * maximum degree in each multiplication, so higher-degree terms are never formed.
+ *
+ * @author runb-cs112
+ *
+ */
+public class PolyAlgebra {
+
+	/**
+	 * Quotient length and divisor length from which Newton division is used, when the
+	 * dividend and divisor are both dense.
+	 */
+	static final int NEWTON_THRESHOLD = 256;
+
+	/**
+	 * Largest degree range done with flat arrays in term-by-term division.
+	 */
+	static final int FLAT_LIMIT = 1 << 22;
+
+	// prevent instantiation
+	private PolyAlgebra() { }
+
+	/**
+	 * Divides one polynomial by another. Neither input is changed.
+	 *
+	 * @param poly1 Dividend (front of polynomial linked list)
+	 * @param poly2 Divisor (front of polynomial linked list)
+	 * @return Two-element array: quotient and remainder, each the front of a new list
+	 * @throws ArithmeticException If the divisor is zero
+	 */
+	public static Node[] divRem(Node poly1, Node poly2) {
+		PackedPolynomial[] qr = divRem(PackedPolynomial.fromList(poly1), PackedPolynomial.fromList(poly2));
+		return new Node[] { qr[0].toList(), qr[1].toList() };
+	}
+
+	/**
+	 * Returns the remainder of dividing one polynomial by another. Neither input is changed.
+	 *
+	 * @param poly1 Dividend (front of polynomial linked list)
+	 * @param poly2 Divisor (front of polynomial linked list)
+	 * @return Remainder, the front of a new list
+	 * @throws ArithmeticException If the divisor is zero
+	 */
+	public static Node mod(Node poly1, Node poly2) {
+		return divRem(PackedPolynomial.fromList(poly1), PackedPolynomial.fromList(poly2))[1].toList();
+	}
+
+	/**
+	 * Raises a polynomial to a power. The input is not changed.
+	 *
+	 * @param poly Polynomial (front of polynomial linked list)
+	 * @param k Exponent, at least 0
+	 * @return poly^k, the front of a new list
+	 * @throws IllegalArgumentException If k is negative
+	 */
+	public static Node pow(Node poly, int k) {
+		return pow(PackedPolynomial.fromList(poly), k, Integer.MAX_VALUE).toList();
+	}
+
+	/**
+	 * Raises a polynomial to a power, keeping only terms of degree at most maxDegree
+	 * (a truncated power series). The input is not changed.
+	 *
+	 * @param poly Polynomial (front of polynomial linked list)
+	 * @param k Exponent, at least 0
+	 * @param maxDegree Highest degree to keep
+	 * @return poly^k truncated to maxDegree, the front of a new list
+	 * @throws IllegalArgumentException If k is negative
+	 */
+	public static Node pow(Node poly, int k, int maxDegree) {
+		return pow(PackedPolynomial.fromList(poly), k, maxDegree).toList();
+	}
+
+	/**
+	 * Divides one packed polynomial by another.
+	 *
+	 * @param a Dividend
+	 * @param b Divisor
+	 * @return Two-element array: quotient and remainder
+	 * @throws ArithmeticException If the divisor is zero
+	 */
+	public static PackedPolynomial[] divRem(PackedPolynomial a, PackedPolynomial b) {
+		if (b.size == 0) {
+			throw new ArithmeticException("Division by zero polynomial");
+		}
+		int n = a.maxDegree(), m = b.maxDegree();
+		if (a.size == 0 || n < m) {
+			return new PackedPolynomial[] { PackedPolynomial.ZERO, a };
+		}
+		if (n - m + 1 >= NEWTON_THRESHOLD && m + 1 >= NEWTON_THRESHOLD &&
+				a.minDegree() >= 0 && b.minDegree() >= 0 && DenseMultiplier.isDense(a) && DenseMultiplier.isDense(b)) {
+			return divRemNewton(a, b);
+		}
+		return divRemTerms(a, b);
+	}
+
+	/**
+	 * Raises a packed polynomial to a power, keeping only terms of degree at most maxDegree.
+	 *
+	 * @param p Polynomial
+	 * @param k Exponent, at least 0
+	 * @param maxDegree Highest degree to keep; Integer.MAX_VALUE for no truncation
+	 * @return p^k, truncated
+	 * @throws IllegalArgumentException If k is negative
+	 */
+	public static PackedPolynomial pow(PackedPolynomial p, int k, int maxDegree) {
+		if (k < 0) {
+			throw new IllegalArgumentException("Negative exponent: " + k);
+		}
+		PackedPolynomial result = new PackedPolynomial(new float[] { 1 }, new int[] { 0 }, 1).truncate(maxDegree);
+		PackedPolynomial base = p.truncate(maxDegree);
+		while (k > 0) {
+			if ((k & 1) != 0) {
+				result = PackedPolynomial.multiply(result, base, maxDegree);
+			}
+			k >>>= 1;
+			if (k > 0) {
+				base = PackedPolynomial.multiply(base, base, maxDegree);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Schoolbook division, one quotient term per step, subtracting only the divisor's
+	 * non-zero terms. Flat arrays over the dividend's degrees when they fit, otherwise
+	 * a DegreeMap with a max-heap of the degrees still to be reduced.
+	 */
+	private static PackedPolynomial[] divRemTerms(PackedPolynomial a, PackedPolynomial b) {
+		int n = a.maxDegree(), m = b.maxDegree();
+		double lead = b.coeffs[b.size - 1];
+		if (n < FLAT_LIMIT && a.minDegree() >= 0 && b.minDegree() >= 0) {
+			double[] r = new double[n + 1];
+			for (int i = 0; i < a.size; i++) {
+				r[a.degrees[i]] = a.coeffs[i];
+			}
+			double[] q = new double[n - m + 1];
+			for (int d = n; d >= m; d--) {
+				if (r[d] == 0) {
+					continue;
+				}
+				double c = r[d] / lead;
+				q[d - m] = c;
+				int shift = d - m;
+				for (int j = 0; j < b.size - 1; j++) {
+					r[b.degrees[j] + shift] -= c * b.coeffs[j];
+				}
+				r[d] = 0;
+			}
+			return new PackedPolynomial[] { SparseMultiplier.fromDense(q, 0),
+					SparseMultiplier.fromDense(Arrays.copyOf(r, m), 0) };
+		}
+
+		DegreeMap r = new DegreeMap(a.size * 2);
+		IntMaxHeap pending = new IntMaxHeap(a.size);
+		for (int i = 0; i < a.size; i++) {
+			r.add(a.degrees[i], a.coeffs[i]);
+			if (a.degrees[i] >= m) {
+				pending.push(a.degrees[i]);
+			}
+		}
+		PolynomialAccumulator q = new PolynomialAccumulator();
+		DegreeMap rem = new DegreeMap(b.size);
+		while (!pending.isEmpty()) {
+			int d = pending.pop();
+			double rd = r.get(d);
+			if (rd == 0) {
+				continue;    // duplicate entry, or a term that cancelled out
+			}
+			double c = rd / lead;
+			q.addTerm((float)c, d - m);
+			int shift = d - m;
+			for (int j = 0; j < b.size - 1; j++) {
+				int e = b.degrees[j] + shift;
+				r.add(e, -c * b.coeffs[j]);
+				if (e >= m) {
+					pending.push(e);
+				}
+			}
+			r.add(d, -rd);
+		}
+		for (int i = 0; i < r.keys.length; i++) {
+			if (r.keys[i] != DegreeMap.EMPTY && r.keys[i] < m) {
+				rem.add(r.keys[i], r.values[i]);
+			}
+		}
+		return new PackedPolynomial[] { q.toPacked(), rem.toPacked() };
+	}
+
+	/**
+	 * Newton division on dense coefficient arrays (index = degree).
+	 */
+	private static PackedPolynomial[] divRemNewton(PackedPolynomial a, PackedPolynomial b) {
+		int n = a.maxDegree(), m = b.maxDegree();
+		int qlen = n - m + 1;
+		double[] ad = dense(a, n + 1), bd = dense(b, m + 1);
+
+		// reversed polynomials: rev(p)[i] = p[deg - i]
+		double[] arev = new double[qlen];
+		for (int i = 0; i < qlen; i++) {
+			arev[i] = ad[n - i];
+		}
+		double[] brev = new double[m + 1];
+		for (int i = 0; i <= m; i++) {
+			brev[i] = bd[m - i];
+		}
+
+		double[] inv = inverse(brev, qlen);
+		double[] qrev = Arrays.copyOf(DenseMultiplier.multiply(arev, inv), qlen);
+		double[] q = new double[qlen];
+		for (int i = 0; i < qlen; i++) {
+			q[i] = qrev[qlen - 1 - i];
+		}
+
+		// a - b*q: the terms of degree m and up must cancel, the rest is the remainder.
+		// Newton iteration in floating point loses precision when the inverse series of
+		// the divisor grows, so a quotient that does not cancel falls back to long division.
+		double[] bq = DenseMultiplier.multiply(bd, q);
+		double scale = 0;
+		for (double c : ad) {
+			scale = Math.max(scale, Math.abs(c));
+		}
+		double tolerance = 1e-9 * Math.max(scale, 1);
+		for (int i = m; i <= n; i++) {
+			if (!(Math.abs(ad[i] - bq[i]) <= tolerance)) {
+				return divRemTerms(a, b);
+			}
+		}
+		double[] r = new double[m];
+		for (int i = 0; i < m; i++) {
+			r[i] = ad[i] - bq[i];
+			// rounding noise in terms that cancel exactly is flushed to zero
+			if (Math.abs(r[i]) <= tolerance) {
+				r[i] = 0;
+			}
+		}
+		return new PackedPolynomial[] { SparseMultiplier.fromDense(q, 0), SparseMultiplier.fromDense(r, 0) };
+	}
+
+	/**
+	 * Returns the power-series inverse of f modulo x^len; f[0] must be non-zero.
+	 */
+	static double[] inverse(double[] f, int len) {
+		double[] g = { 1 / f[0] };
+		int have = 1;
+		while (have < len) {
+			int next = Math.min(2 * have, len);
+			// g = g * (2 - f*g) mod x^next
+			double[] fg = Arrays.copyOf(DenseMultiplier.multiply(Arrays.copyOf(f, Math.min(f.length, next)), g), next);
+			for (int i = 0; i < next; i++) {
+				fg[i] = -fg[i];
+			}
+			fg[0] += 2;
+			g = Arrays.copyOf(DenseMultiplier.multiply(g, fg), next);
+			have = next;
+		}
+		return g;
+	}
+
+	private static double[] dense(PackedPolynomial p, int length) {
+		double[] d = new double[length];
+		for (int i = 0; i < p.size; i++) {
+			d[p.degrees[i]] = p.coeffs[i];
+		}
+		return d;
+	}
+
+	/**
+	 * A max-heap of ints on a growable array.
+	 */
+	private static class IntMaxHeap {
+		private int[] heap;
+		private int size;
+
+		IntMaxHeap(int capacity) {
+			heap = new int[Math.max(capacity, 16)];
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		void push(int v) {
+			if (size == heap.length) {
+				heap = Arrays.copyOf(heap, size * 2);
+			}
+			int i = size++;
+			while (i > 0 && heap[(i - 1) / 2] < v) {
+				heap[i] = heap[(i - 1) / 2];
+				i = (i - 1) / 2;
+			}
+			heap[i] = v;
+		}
+
+		int pop() {
+			int top = heap[0];
+			int v = heap[--size];
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child + 1 < size && heap[child + 1] > heap[child]) {
+					child++;
+				}
+				if (heap[child] <= v) {
+					break;
+				}
+				heap[i] = heap[child];
+				i = child;
+			}
+			heap[i] = v;
+			return top;
+		}
+	}
+}
@@ -0,0 +1,254 @@
+package poly;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class benchmarks the Polynomial operations on generated sparse or dense
+ * polynomials, and reports time and heap allocation per operation. Results can be
+ * written as JSON and compared against an earlier JSON file, to catch regressions
+ * between versions.
+ * <pre>
+ *     java poly.PolyBench [name=value ...]
+ * </pre>
+ * with these parameters (defaults in brackets):
+ * <pre>
+ *     shape       sparse or dense [sparse]
+ *     terms       terms per sparse operand [2000]
+ *     spread      degree range of sparse operands [1000000]
+ *     degree      highest degree of dense operands [20000]
+ *     points      points for the batch evaluate benchmark [100000]
+ *     ops         comma-separated operations, from add, multiply, evaluate,
+ *                 evaluateBatch, read, readScanner and toString
+ *                 [add,multiply,evaluate,evaluateBatch,read,toString]
+ *     warmup      warmup iterations [5]
+ *     iterations  measured iterations [10]
+ *     millis      minimum length of one iteration, in milliseconds [200]
+ *     seed        random seed [42]
+ *     out         file to write JSON results to [none]
+ *     baseline    JSON results file to compare against [none]
+ * </pre>
+ * readScanner times Polynomial.read, which makes a Scanner per line; it is not in the
+ * default set because it is orders of magnitude slower than the other operations.
+ *
+ * @author runb-cs112
+ *
+ */
+public class PolyBench {
+
+	/**
+	 * Results are folded in here so the JIT cannot drop the benchmarked work.
+	 */
+	static volatile int sink;
+
+	/**
+	 * One benchmarked operation.
+	 */
+	interface Op {
+		void run() throws IOException;
+	}
+
+	public static void main(String[] args) throws IOException {
+		Map<String,String> params = new LinkedHashMap<>();
+		params.put("shape", "sparse");
+		params.put("terms", "2000");
+		params.put("spread", "1000000");
+		params.put("degree", "20000");
+		params.put("points", "100000");
+		params.put("ops", "add,multiply,evaluate,evaluateBatch,read,toString");
+		params.put("warmup", "5");
+		params.put("iterations", "10");
+		params.put("millis", "200");
+		params.put("seed", "42");
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			if (eq < 0 || !params.containsKey(arg.substring(0, eq)) &&
+					!arg.startsWith("out=") && !arg.startsWith("baseline=")) {
+				throw new IllegalArgumentException("Unknown argument: " + arg);
+			}
+			params.put(arg.substring(0, eq), arg.substring(eq + 1));
+		}
+
+		Random rand = new Random(Long.parseLong(params.get("seed")));
+		boolean dense = params.get("shape").equals("dense");
+		Node poly1, poly2;
+		if (dense) {
+			int degree = Integer.parseInt(params.get("degree"));
+			poly1 = PolyGen.dense(rand, degree);
+			poly2 = PolyGen.dense(rand, degree);
+		} else {
+			int terms = Integer.parseInt(params.get("terms"));
+			int spread = Integer.parseInt(params.get("spread"));
+			poly1 = PolyGen.sparse(rand, terms, spread);
+			poly2 = PolyGen.sparse(rand, terms, spread);
+		}
+		float[] xs = new float[Integer.parseInt(params.get("points"))];
+		for (int i = 0; i < xs.length; i++) {
+			xs[i] = rand.nextFloat() * 2 - 1;
+		}
+		float[] out = new float[xs.length];
+
+		Path file = Files.createTempFile("polybench", ".txt");
+		file.toFile().deleteOnExit();
+		try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(file))) {
+			PackedPolynomial p = PackedPolynomial.fromList(poly1);
+			for (int i = p.size - 1; i >= 0; i--) {
+				pw.println(p.coeffs[i] + " " + p.degrees[i]);
+			}
+		}
+
+		Map<String,Op> all = new LinkedHashMap<>();
+		all.put("add", () -> sink += System.identityHashCode(Polynomial.add(poly1, poly2)));
+		all.put("multiply", () -> sink += System.identityHashCode(Polynomial.multiply(poly1, poly2)));
+		all.put("evaluate", () -> sink += Float.floatToIntBits(Polynomial.evaluate(poly1, 0.999f)));
+		all.put("evaluateBatch", () -> {
+			Polynomial.evaluate(poly1, xs, out);
+			sink += Float.floatToIntBits(out[0]);
+		});
+		all.put("read", () -> sink += System.identityHashCode(PolyReader.readList(file)));
+		all.put("readScanner", () -> {
+			try (Scanner sc = new Scanner(file.toFile())) {
+				sink += System.identityHashCode(Polynomial.read(sc));
+			}
+		});
+		all.put("toString", () -> sink += Polynomial.toString(poly1).length());
+
+		int warmup = Integer.parseInt(params.get("warmup"));
+		int iterations = Integer.parseInt(params.get("iterations"));
+		long millis = Long.parseLong(params.get("millis"));
+		List<Result> results = new ArrayList<>();
+		System.out.println("op\t\tns/op\t\tmin ns/op\tbytes/op");
+		for (String name : params.get("ops").split(",")) {
+			Op op = all.get(name.trim());
+			if (op == null) {
+				throw new IllegalArgumentException("Unknown operation: " + name);
+			}
+			Result r = measure(name.trim(), op, warmup, iterations, millis);
+			results.add(r);
+			System.out.printf("%-12s\t%.1f\t%.1f\t%.1f%n", r.op, r.nsPerOp, r.minNsPerOp, r.bytesPerOp);
+		}
+
+		if (params.containsKey("out")) {
+			writeJson(Paths.get(params.get("out")), params, results);
+		}
+		if (params.containsKey("baseline")) {
+			compare(Paths.get(params.get("baseline")), results);
+		}
+	}
+
+	/**
+	 * Measured figures for one operation.
+	 */
+	static class Result {
+		String op;
+		double nsPerOp, minNsPerOp, bytesPerOp;
+		long ops;
+	}
+
+	/**
+	 * Runs warmup iterations, then measured iterations of at least the given length each.
+	 * Time per operation is averaged over all measured iterations; allocation is read
+	 * from the current thread's allocation counter, as JMH's gc profiler does.
+	 */
+	static Result measure(String name, Op op, int warmup, int iterations, long millis) throws IOException {
+		long minNanos = millis * 1000000;
+		for (int i = 0; i < warmup; i++) {
+			long start = System.nanoTime();
+			do {
+				op.run();
+			} while (System.nanoTime() - start < minNanos);
+		}
+
+		Result r = new Result();
+		r.op = name;
+		r.minNsPerOp = Double.MAX_VALUE;
+		long totalNanos = 0, totalBytes = 0;
+		for (int i = 0; i < iterations; i++) {
+			long ops = 0;
+			long bytes = allocatedBytes();
+			long start = System.nanoTime(), elapsed;
+			do {
+				op.run();
+				ops++;
+				elapsed = System.nanoTime() - start;
+			} while (elapsed < minNanos);
+			totalBytes += allocatedBytes() - bytes;
+			totalNanos += elapsed;
+			r.ops += ops;
+			r.minNsPerOp = Math.min(r.minNsPerOp, (double)elapsed / ops);
+		}
+		r.nsPerOp = (double)totalNanos / r.ops;
+		r.bytesPerOp = (double)totalBytes / r.ops;
+		return r;
+	}
+
+	/**
+	 * Returns bytes allocated so far by the current thread, or 0 if the JVM does not say.
+	 */
+	static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	static void writeJson(Path file, Map<String,String> params, List<Result> results) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\n  \"java\": \"").append(System.getProperty("java.version")).append("\",\n");
+		sb.append("  \"params\": {");
+		String sep = "\n";
+		for (Map.Entry<String,String> e : params.entrySet()) {
+			if (e.getKey().equals("out") || e.getKey().equals("baseline")) {
+				continue;
+			}
+			sb.append(sep).append("    \"").append(e.getKey()).append("\": \"").append(e.getValue()).append('"');
+			sep = ",\n";
+		}
+		sb.append("\n  },\n  \"results\": [");
+		sep = "\n";
+		for (Result r : results) {
+			sb.append(sep).append(String.format(Locale.ROOT, "    {\"op\": \"%s\", \"nsPerOp\": %.1f, \"minNsPerOp\": %.1f, " +
+					"\"bytesPerOp\": %.1f, \"ops\": %d}", r.op, r.nsPerOp, r.minNsPerOp, r.bytesPerOp, r.ops));
+			sep = ",\n";
+		}
+		sb.append("\n  ]\n}\n");
+		Files.writeString(file, sb.toString());
+	}
+
+	/**
+	 * Prints the ratio of each result to the same operation in a JSON file written earlier.
+	 */
+	static void compare(Path baseline, List<Result> results) throws IOException {
+		Pattern entry = Pattern.compile("\"op\": \"(\\w+)\", \"nsPerOp\": ([0-9.]+), " +
+				"\"minNsPerOp\": [0-9.]+, \"bytesPerOp\": ([0-9.]+)");
+		Map<String,double[]> old = new LinkedHashMap<>();
+		Matcher m = entry.matcher(Files.readString(baseline));
+		while (m.find()) {
+			old.put(m.group(1), new double[] { Double.parseDouble(m.group(2)), Double.parseDouble(m.group(3)) });
+		}
+		System.out.println("\nop\t\ttime vs baseline\tbytes vs baseline");
+		for (Result r : results) {
+			double[] o = old.get(r.op);
+			if (o == null) {
+				System.out.printf("%-12s\t(not in baseline)%n", r.op);
+			} else {
+				System.out.printf("%-12s\t%.2fx\t\t\t%s%n", r.op, r.nsPerOp / o[0],
+						o[1] == 0 ? "-" : String.format("%.2fx", r.bytesPerOp / o[1]));
+			}
+		}
+	}
+}
@@ -0,0 +1,167 @@
+package poly;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class writes and maps the binary polynomial format. All values are little-endian.
+ * <pre>
+ *     int   magic          "POLY"
+ *     byte  version        1
+ *     byte  flags          bit 0 set if degrees are delta-encoded
+ *     short reserved       0
+ *     int   count          number of terms
+ *     int   maxDegree      highest degree, -1 if there are no terms
+ *     long  degreeBytes    length of the degree section
+ *     float coeffs[count]  in descending order of degree
+ *     degree section       int degrees[count] in descending order, or, if delta-encoded,
+ *                          maxDegree followed by the count-1 gaps between consecutive
+ *                          degrees, each as an unsigned LEB128 varint
+ * </pre>
+ * Terms are stored highest degree first, the same order as the text format, so a mapped
+ * file can be evaluated by Horner's scheme in one forward pass.
+ *
+ * @author runb-cs112
+ *
+ */
+public class PolyBinary {
+
+	/**
+	 * "POLY" in little-endian byte order.
+	 */
+	static final int MAGIC = 'P' | 'O' << 8 | 'L' << 16 | 'Y' << 24;
+
+	/**
+	 * Current format version.
+	 */
+	static final byte VERSION = 1;
+
+	/**
+	 * Flag bit for delta-encoded degrees.
+	 */
+	static final byte DELTA_DEGREES = 1;
+
+	/**
+	 * Length of the header, in bytes.
+	 */
+	static final int HEADER_BYTES = 24;
+
+	// prevent instantiation
+	private PolyBinary() { }
+
+	/**
+	 * Writes a packed polynomial to a file in binary format, replacing the file if it exists.
+	 *
+	 * @param p Polynomial
+	 * @param file File to write
+	 * @param deltaDegrees Whether to delta-encode the degrees
+	 * @throws IOException If the file cannot be written
+	 */
+	public static void write(PackedPolynomial p, Path file, boolean deltaDegrees) throws IOException {
+		int n = p.size;
+		ByteBuffer degrees = deltaDegrees ? encodeDeltas(p) : null;
+		long degreeBytes = deltaDegrees ? degrees.remaining() : 4L * n;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).put(VERSION).put(deltaDegrees ? DELTA_DEGREES : 0).putShort((short)0);
+			header.putInt(n).putInt(p.maxDegree()).putLong(degreeBytes);
+			header.flip();
+			writeFully(channel, header);
+
+			ByteBuffer chunk = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+			for (int i = n - 1; i >= 0; i--) {
+				if (chunk.remaining() < 4) {
+					chunk.flip();
+					writeFully(channel, chunk);
+					chunk.clear();
+				}
+				chunk.putFloat(p.coeffs[i]);
+			}
+			if (deltaDegrees) {
+				chunk.flip();
+				writeFully(channel, chunk);
+				writeFully(channel, degrees);
+				return;
+			}
+			for (int i = n - 1; i >= 0; i--) {
+				if (chunk.remaining() < 4) {
+					chunk.flip();
+					writeFully(channel, chunk);
+					chunk.clear();
+				}
+				chunk.putInt(p.degrees[i]);
+			}
+			chunk.flip();
+			writeFully(channel, chunk);
+		}
+	}
+
+	/**
+	 * Maps a binary polynomial file into memory. Nothing is decoded until it is used.
+	 *
+	 * @param file File to map
+	 * @return Mapped polynomial
+	 * @throws IOException If the file cannot be read, or is not a valid binary polynomial
+	 */
+	public static MappedPolynomial map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long length = channel.size();
+			if (length > Integer.MAX_VALUE) {
+				throw new IOException("Binary polynomial file too large to map: " + length + " bytes");
+			}
+			if (length < HEADER_BYTES) {
+				throw new IOException("Not a binary polynomial file: " + file);
+			}
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			buf.order(ByteOrder.LITTLE_ENDIAN);
+			if (buf.getInt(0) != MAGIC) {
+				throw new IOException("Not a binary polynomial file: " + file);
+			}
+			if (buf.get(4) != VERSION) {
+				throw new IOException("Unsupported binary polynomial version " + buf.get(4) + ": " + file);
+			}
+			boolean delta = (buf.get(5) & DELTA_DEGREES) != 0;
+			int count = buf.getInt(8);
+			int maxDegree = buf.getInt(12);
+			long degreeBytes = buf.getLong(16);
+			if (count < 0 || degreeBytes < 0 || (!delta && degreeBytes != 4L * count) ||
+					HEADER_BYTES + 4L * count + degreeBytes != length) {
+				throw new IOException("Corrupt binary polynomial header: " + file);
+			}
+			return new MappedPolynomial(buf, count, maxDegree, delta);
+		}
+	}
+
+	private static ByteBuffer encodeDeltas(PackedPolynomial p) {
+		ByteBuffer out = ByteBuffer.allocate(Math.max(16, p.size * 2));
+		int prev = 0;
+		for (int i = p.size - 1; i >= 0; i--) {
+			int value = i == p.size - 1 ? p.degrees[i] : prev - p.degrees[i];
+			prev = p.degrees[i];
+			if (out.remaining() < 5) {
+				ByteBuffer grown = ByteBuffer.allocate(out.capacity() * 2);
+				out.flip();
+				out = grown.put(out);
+			}
+			while ((value & ~0x7F) != 0) {
+				out.put((byte)((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			out.put((byte)value);
+		}
+		out.flip();
+		return out;
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+		while (buf.hasRemaining()) {
+			channel.write(buf);
+		}
+	}
+}
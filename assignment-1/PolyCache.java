@@ -0,0 +1,273 @@
+package poly;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class implements an opt-in cache of the results of Polynomial.add and
+ * Polynomial.multiply, for callers that apply them to the same operands over and over.
+ *
+ * Entries are keyed by the content of the operands - their terms, front to back - not
+ * by the identity of their nodes, so a list built again with the same terms hits the
+ * cache, and changing a list after a call cannot corrupt an entry: operands and results
+ * are copied into the cache as arrays. Every call, hit or miss, returns a list of all
+ * new nodes, as add and multiply always have.
+ *
+ * The cache is bounded by number of entries and by an estimate of the bytes held;
+ * least recently used entries are evicted first. All methods are thread-safe. The
+ * operation itself is computed outside the lock, so concurrent misses on the same
+ * operands may both compute it.
+ *
+ * @author runb-cs112
+ *
+ */
+public class PolyCache {
+
+	/**
+	 * Estimated bytes per cached term: a float and an int.
+	 */
+	static final int TERM_BYTES = 8;
+
+	/**
+	 * Estimated fixed bytes per entry: key, arrays and map node headers.
+	 */
+	static final int ENTRY_BYTES = 160;
+
+	private static final byte ADD = 0, MULTIPLY = 1;
+
+	private final int maxEntries;
+	private final long maxBytes;
+
+	/**
+	 * Entries in access order, least recently used first.
+	 */
+	private final LinkedHashMap<Key, Terms> map = new LinkedHashMap<Key, Terms>(16, 0.75f, true);
+
+	private long bytes;
+	private long hits, misses, evictions;
+
+	/**
+	 * Initializes an empty cache.
+	 *
+	 * @param maxEntries Maximum number of cached results
+	 * @param maxBytes Maximum estimated size of operands and results held
+	 * @throws IllegalArgumentException If either bound is not positive
+	 */
+	public PolyCache(int maxEntries, long maxBytes) {
+		if (maxEntries <= 0 || maxBytes <= 0) {
+			throw new IllegalArgumentException("Cache bounds must be positive: " + maxEntries + ", " + maxBytes);
+		}
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns the sum of two polynomials, as Polynomial.add does, from the cache if present.
+	 * DOES NOT change either of the input polynomials. The returned polynomial has all new nodes.
+	 *
+	 * @param poly1 First input polynomial (front of polynomial linked list)
+	 * @param poly2 Second input polynomial (front of polynomial linked list)
+	 * @return A new polynomial which is the sum of the input polynomials
+	 */
+	public Node add(Node poly1, Node poly2) {
+		Key key = new Key(ADD, Terms.of(poly1), Terms.of(poly2));
+		Terms result = lookup(key);
+		if (result == null) {
+			result = Terms.of(Polynomial.add(poly1, poly2));
+			store(key, result);
+		}
+		return result.toList();
+	}
+
+	/**
+	 * Returns the product of two polynomials, as Polynomial.multiply does, from the cache
+	 * if present. DOES NOT change either of the input polynomials. The returned polynomial
+	 * has all new nodes.
+	 *
+	 * @param poly1 First input polynomial (front of polynomial linked list)
+	 * @param poly2 Second input polynomial (front of polynomial linked list)
+	 * @return A new polynomial which is the product of the input polynomials
+	 */
+	public Node multiply(Node poly1, Node poly2) {
+		Key key = new Key(MULTIPLY, Terms.of(poly1), Terms.of(poly2));
+		Terms result = lookup(key);
+		if (result == null) {
+			result = Terms.of(Polynomial.multiply(poly1, poly2));
+			store(key, result);
+		}
+		return result.toList();
+	}
+
+	/**
+	 * Returns the number of calls answered from the cache.
+	 *
+	 * @return Hit count
+	 */
+	public synchronized long hits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of calls that had to compute their result.
+	 *
+	 * @return Miss count
+	 */
+	public synchronized long misses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of entries evicted to stay within the bounds.
+	 *
+	 * @return Eviction count
+	 */
+	public synchronized long evictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns the number of cached results.
+	 *
+	 * @return Number of entries
+	 */
+	public synchronized int size() {
+		return map.size();
+	}
+
+	/**
+	 * Returns the estimated bytes held by cached operands and results.
+	 *
+	 * @return Estimated size in bytes
+	 */
+	public synchronized long bytes() {
+		return bytes;
+	}
+
+	/**
+	 * Removes all entries. The counters are kept.
+	 */
+	public synchronized void clear() {
+		map.clear();
+		bytes = 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public synchronized String toString() {
+		return "PolyCache[entries=" + map.size() + ", bytes=" + bytes + ", hits=" + hits +
+				", misses=" + misses + ", evictions=" + evictions + "]";
+	}
+
+	private synchronized Terms lookup(Key key) {
+		Terms result = map.get(key);
+		if (result != null) {
+			hits++;
+		} else {
+			misses++;
+		}
+		return result;
+	}
+
+	private synchronized void store(Key key, Terms result) {
+		long size = ENTRY_BYTES + TERM_BYTES * ((long)key.left.size() + key.right.size() + result.size());
+		if (size > maxBytes) {
+			return;    // would evict everything else and still not fit
+		}
+		Terms old = map.put(key, result);
+		if (old != null) {
+			bytes -= ENTRY_BYTES + TERM_BYTES * ((long)key.left.size() + key.right.size() + old.size());
+		}
+		bytes += size;
+		Iterator<Map.Entry<Key, Terms>> it = map.entrySet().iterator();
+		while ((map.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+			Map.Entry<Key, Terms> e = it.next();
+			Key k = e.getKey();
+			bytes -= ENTRY_BYTES + TERM_BYTES * ((long)k.left.size() + k.right.size() + e.getValue().size());
+			it.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * The terms of a linked list copied into arrays, front to back, as they are, with
+	 * their hash computed once.
+	 */
+	private static class Terms {
+		final float[] coeffs;
+		final int[] degrees;
+		final int hash;
+
+		private Terms(float[] coeffs, int[] degrees) {
+			this.coeffs = coeffs;
+			this.degrees = degrees;
+			int h = 1;
+			for (int i = 0; i < coeffs.length; i++) {
+				h = 31 * (31 * h + Float.floatToIntBits(coeffs[i])) + degrees[i];
+			}
+			hash = h;
+		}
+
+		static Terms of(Node poly) {
+			int n = 0;
+			for (Node ptr = poly; ptr != null; ptr = ptr.next) {
+				n++;
+			}
+			float[] coeffs = new float[n];
+			int[] degrees = new int[n];
+			int i = 0;
+			for (Node ptr = poly; ptr != null; ptr = ptr.next, i++) {
+				coeffs[i] = ptr.term.coeff;
+				degrees[i] = ptr.term.degree;
+			}
+			return new Terms(coeffs, degrees);
+		}
+
+		int size() {
+			return coeffs.length;
+		}
+
+		Node toList() {
+			Node front = null;
+			for (int i = coeffs.length - 1; i >= 0; i--) {
+				front = new Node(coeffs[i], degrees[i], front);
+			}
+			return front;
+		}
+
+		boolean sameAs(Terms other) {
+			return hash == other.hash && Arrays.equals(degrees, other.degrees) &&
+					Arrays.equals(coeffs, other.coeffs);
+		}
+	}
+
+	/**
+	 * An operation and its two operands.
+	 */
+	private static class Key {
+		final byte op;
+		final Terms left, right;
+		final int hash;
+
+		Key(byte op, Terms left, Terms right) {
+			this.op = op;
+			this.left = left;
+			this.right = right;
+			hash = (op * 31 + left.hash) * 31 + right.hash;
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key k = (Key)o;
+			return hash == k.hash && op == k.op && left.sameAs(k.left) && right.sameAs(k.right);
+		}
+	}
+}
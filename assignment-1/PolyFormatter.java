@@ -0,0 +1,205 @@
+package poly;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class writes polynomials in the format of Polynomial.toString - terms in
+ * descending order of degree, separated by " + " - in one linear pass. Output goes to
+ * any Appendable through a small buffer, so a Writer or channel receives it in chunks
+ * without the whole string ever being built.
+ *
+ * Terms of a linked list are written as they are, without combining equal degrees or
+ * dropping zero coefficients, exactly as Polynomial.toString always has.
+ *
+ * @author runb-cs112
+ *
+ */
+public class PolyFormatter {
+
+	/**
+	 * Characters buffered before they are handed to the Appendable.
+	 */
+	static final int CHUNK = 8192;
+
+	/**
+	 * Separator between terms.
+	 */
+	static final String SEPARATOR = " + ";
+
+	// prevent instantiation
+	private PolyFormatter() { }
+
+	/**
+	 * Returns the string representation of a polynomial, as Polynomial.toString does.
+	 *
+	 * @param poly Polynomial (front of linked list)
+	 * @return String representation, in descending order of degrees
+	 */
+	public static String toString(Node poly) {
+		Terms t = Terms.of(poly);
+		StringBuilder sb = new StringBuilder(Math.max(1, t.size * 12));
+		appendRange(t.coeffs, t.degrees, t.size - 1, -1, sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the string representation of a packed polynomial.
+	 *
+	 * @param p Polynomial
+	 * @return String representation, in descending order of degrees
+	 */
+	public static String toString(PackedPolynomial p) {
+		StringBuilder sb = new StringBuilder(Math.max(1, p.size * 12));
+		appendRange(p.coeffs, p.degrees, p.size - 1, -1, sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Writes the string representation of a polynomial to an Appendable.
+	 *
+	 * @param poly Polynomial (front of linked list)
+	 * @param out Destination
+	 * @throws IOException If the destination cannot be written
+	 */
+	public static void format(Node poly, Appendable out) throws IOException {
+		Terms t = Terms.of(poly);
+		format(t.coeffs, t.degrees, t.size, out);
+	}
+
+	/**
+	 * Writes the string representation of a packed polynomial to an Appendable.
+	 *
+	 * @param p Polynomial
+	 * @param out Destination
+	 * @throws IOException If the destination cannot be written
+	 */
+	public static void format(PackedPolynomial p, Appendable out) throws IOException {
+		format(p.coeffs, p.degrees, p.size, out);
+	}
+
+	/**
+	 * Writes the string representation of a polynomial to a channel, UTF-8 encoded.
+	 * The channel is not closed.
+	 *
+	 * @param poly Polynomial (front of linked list)
+	 * @param channel Destination
+	 * @throws IOException If the channel cannot be written
+	 */
+	public static void write(Node poly, WritableByteChannel channel) throws IOException {
+		Writer w = Channels.newWriter(channel, StandardCharsets.UTF_8);
+		format(poly, w);
+		w.flush();
+	}
+
+	/**
+	 * Returns a preview of a polynomial for logging: the k highest and k lowest degree
+	 * terms, with the number of terms left out in between. A polynomial of at most 2k
+	 * terms is returned in full.
+	 *
+	 * @param poly Polynomial (front of linked list)
+	 * @param k Number of terms to show at each end
+	 * @return Preview string
+	 */
+	public static String preview(Node poly, int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("Negative preview length: " + k);
+		}
+		Terms t = Terms.of(poly);
+		if (t.size <= 2 * k) {
+			StringBuilder sb = new StringBuilder();
+			appendRange(t.coeffs, t.degrees, t.size - 1, -1, sb);
+			return sb.toString();
+		}
+		StringBuilder sb = new StringBuilder(k * 24 + 32);
+		if (k > 0) {
+			appendRange(t.coeffs, t.degrees, t.size - 1, t.size - 1 - k, sb);
+			sb.append(SEPARATOR);
+		}
+		sb.append("...(").append(t.size - 2 * k).append(" more terms)...");
+		if (k > 0) {
+			sb.append(SEPARATOR);
+			appendRange(t.coeffs, t.degrees, k - 1, -1, sb);
+		}
+		return sb.toString();
+	}
+
+	private static void format(float[] coeffs, int[] degrees, int size, Appendable out) throws IOException {
+		if (out instanceof StringBuilder) {
+			appendRange(coeffs, degrees, size - 1, -1, (StringBuilder)out);
+			return;
+		}
+		if (size == 0) {
+			out.append('0');
+			return;
+		}
+		StringBuilder chunk = new StringBuilder(CHUNK + 64);
+		for (int i = size - 1; i >= 0; i--) {
+			appendTerm(coeffs[i], degrees[i], chunk);
+			if (i > 0) {
+				chunk.append(SEPARATOR);
+			}
+			if (chunk.length() >= CHUNK) {
+				out.append(chunk);
+				chunk.setLength(0);
+			}
+		}
+		out.append(chunk);
+	}
+
+	/**
+	 * Appends terms from index hi down to (not including) lo, "0" if the range is empty
+	 * and covers the whole polynomial.
+	 */
+	private static void appendRange(float[] coeffs, int[] degrees, int hi, int lo, StringBuilder sb) {
+		if (hi < 0) {
+			sb.append('0');
+			return;
+		}
+		for (int i = hi; i > lo; i--) {
+			appendTerm(coeffs[i], degrees[i], sb);
+			if (i > lo + 1) {
+				sb.append(SEPARATOR);
+			}
+		}
+	}
+
+	/**
+	 * Appends one term, in the format of Term.toString.
+	 */
+	static void appendTerm(float coeff, int degree, StringBuilder sb) {
+		sb.append(coeff);
+		if (degree == 1) {
+			sb.append('x');
+		} else if (degree != 0) {
+			sb.append("x^").append(degree);
+		}
+	}
+
+	/**
+	 * The terms of a linked list copied into arrays, front to back, as they are.
+	 */
+	private static class Terms {
+		float[] coeffs;
+		int[] degrees;
+		int size;
+
+		static Terms of(Node poly) {
+			Terms t = new Terms();
+			for (Node ptr = poly; ptr != null; ptr = ptr.next) {
+				t.size++;
+			}
+			t.coeffs = new float[t.size];
+			t.degrees = new int[t.size];
+			int i = 0;
+			for (Node ptr = poly; ptr != null; ptr = ptr.next, i++) {
+				t.coeffs[i] = ptr.term.coeff;
+				t.degrees[i] = ptr.term.degree;
+			}
+			return t;
+		}
+	}
+}
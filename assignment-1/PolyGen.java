@@ -0,0 +1,53 @@
+package poly;
+
+import java.util.Random;
+
+/**
+ * This class generates random polynomials for benchmarks.
+ *
+ * @author runb-cs112
+ *
+ */
+public class PolyGen {
+
+	// prevent instantiation
+	private PolyGen() { }
+
+	/**
+	 * Returns a polynomial with the given number of terms, at distinct random degrees
+	 * in [0, spread), with small non-zero integer coefficients.
+	 *
+	 * @param rand Random source
+	 * @param terms Number of terms, at most spread
+	 * @param spread Degree range
+	 * @return The polynomial linked list (front node)
+	 */
+	public static Node sparse(Random rand, int terms, int spread) {
+		if (terms > spread) {
+			throw new IllegalArgumentException("Cannot fit " + terms + " terms in " + spread + " degrees");
+		}
+		// Floyd's sampling of distinct degrees, then sorted
+		DegreeMap chosen = new DegreeMap(terms);
+		for (int j = spread - terms; j < spread; j++) {
+			int d = rand.nextInt(j + 1);
+			chosen.add(chosen.get(d) != 0 ? j : d, rand.nextInt(9) + 1);
+		}
+		return chosen.toPacked().toList();
+	}
+
+	/**
+	 * Returns a polynomial with a term at every degree in [0, degree], with small non-zero
+	 * integer coefficients.
+	 *
+	 * @param rand Random source
+	 * @param degree Highest degree
+	 * @return The polynomial linked list (front node)
+	 */
+	public static Node dense(Random rand, int degree) {
+		Node front = null;
+		for (int d = degree; d >= 0; d--) {
+			front = new Node(rand.nextInt(9) + 1, d, front);
+		}
+		return front;
+	}
+}
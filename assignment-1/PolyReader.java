@@ -0,0 +1,248 @@
+package poly;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class reads polynomial files in the text format of Polynomial.read - one
+ * "coeff degree" pair per line, degrees in descending order - straight off a
+ * FileChannel. Numbers are parsed by hand from a reusable byte buffer, so no objects
+ * are created per line or per term.
+ *
+ * @author runb-cs112
+ *
+ */
+public class PolyReader {
+
+	/**
+	 * Size of the read buffer, in bytes.
+	 */
+	static final int BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * Longest number token accepted, in characters.
+	 */
+	static final int MAX_TOKEN = 64;
+
+	private static final double[] POW10 = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private final byte[] buf;
+	private final byte[] token = new byte[MAX_TOKEN];
+	private int pos, limit;
+	private long terms;
+
+	private PolyReader(FileChannel channel) {
+		this.channel = channel;
+		this.buf = new byte[BUFFER_SIZE];
+		this.buffer = ByteBuffer.wrap(buf);
+	}
+
+	/**
+	 * Reads a polynomial file into a linked list, exactly as Polynomial.read does: one
+	 * new node per line, prepended, so the lowest degree ends up at the front.
+	 *
+	 * @param file Polynomial file
+	 * @return The polynomial linked list (front node)
+	 * @throws IOException If the file cannot be read or is malformed
+	 */
+	public static Node readList(Path file) throws IOException {
+		Node[] front = new Node[1];
+		stream(file, (coeff, degree) -> front[0] = new Node(coeff, degree, front[0]));
+		return front[0];
+	}
+
+	/**
+	 * Reads a polynomial file into packed form.
+	 *
+	 * @param file Polynomial file
+	 * @return The packed polynomial
+	 * @throws IOException If the file cannot be read or is malformed
+	 */
+	public static PackedPolynomial readPacked(Path file) throws IOException {
+		int cap = (int)Math.min(Math.max(file.toFile().length() / 8, 16), Integer.MAX_VALUE - 8);
+		float[][] coeffs = { new float[cap] };
+		int[][] degrees = { new int[cap] };
+		int[] n = { 0 };
+		stream(file, (coeff, degree) -> {
+			if (n[0] == coeffs[0].length) {
+				int grown = (int)Math.min(2L * n[0], Integer.MAX_VALUE - 8);
+				coeffs[0] = java.util.Arrays.copyOf(coeffs[0], grown);
+				degrees[0] = java.util.Arrays.copyOf(degrees[0], grown);
+			}
+			coeffs[0][n[0]] = coeff;
+			degrees[0][n[0]++] = degree;
+		});
+
+		// the file is in descending order of degree, packed form is ascending
+		float[] c = coeffs[0];
+		int[] d = degrees[0];
+		for (int i = 0, j = n[0] - 1; i < j; i++, j--) {
+			float tc = c[i]; c[i] = c[j]; c[j] = tc;
+			int td = d[i]; d[i] = d[j]; d[j] = td;
+		}
+		return PackedPolynomial.normalize(c, d, n[0]);
+	}
+
+	/**
+	 * Reads the terms of polynomial files and sums them as they are read, without holding
+	 * any of the input polynomials in memory.
+	 *
+	 * @param files Polynomial files
+	 * @return Sum of the polynomials in the files
+	 * @throws IOException If a file cannot be read or is malformed
+	 */
+	public static PackedPolynomial sum(Path... files) throws IOException {
+		DegreeMap acc = new DegreeMap(1024);
+		for (Path file : files) {
+			stream(file, (coeff, degree) -> acc.add(degree, coeff));
+		}
+		return acc.toPacked();
+	}
+
+	/**
+	 * Reads a polynomial file and hands each term, in file order, to a consumer.
+	 *
+	 * @param file Polynomial file
+	 * @param sink Consumer of the terms
+	 * @throws IOException If the file cannot be read or is malformed
+	 */
+	public static void stream(Path file, TermConsumer sink) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			new PolyReader(channel).readTerms(sink);
+		}
+	}
+
+	private void readTerms(TermConsumer sink) throws IOException {
+		while (true) {
+			int len = nextToken();
+			if (len == 0) {
+				return;
+			}
+			float coeff = parseFloat(len);
+			len = nextToken();
+			if (len == 0) {
+				throw malformed("missing degree");
+			}
+			int degree = parseInt(len);
+			sink.accept(coeff, degree);
+			terms++;
+		}
+	}
+
+	/**
+	 * Copies the next whitespace-delimited token into the token buffer.
+	 *
+	 * @return Length of the token, 0 at end of input
+	 */
+	private int nextToken() throws IOException {
+		int b;
+		do {
+			b = next();
+		} while (b == ' ' || b == '\t' || b == '\n' || b == '\r');
+		int len = 0;
+		while (b != -1 && b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+			if (len == MAX_TOKEN) {
+				throw malformed("number too long");
+			}
+			token[len++] = (byte)b;
+			b = next();
+		}
+		return len;
+	}
+
+	private int next() throws IOException {
+		if (pos == limit) {
+			buffer.clear();
+			int read;
+			do {
+				read = channel.read(buffer);
+			} while (read == 0);
+			if (read < 0) {
+				return -1;
+			}
+			pos = 0;
+			limit = read;
+		}
+		return buf[pos++];
+	}
+
+	/**
+	 * Parses a plain decimal ([sign] digits [. digits]) directly; anything else, such as
+	 * exponents or very long mantissas, goes through Float.parseFloat.
+	 */
+	private float parseFloat(int len) throws IOException {
+		int i = 0;
+		boolean negative = false;
+		if (token[0] == '-' || token[0] == '+') {
+			negative = token[0] == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0, fraction = 0;
+		boolean point = false, plain = i < len;
+		for (; i < len && plain; i++) {
+			int b = token[i];
+			if (b >= '0' && b <= '9') {
+				mantissa = mantissa * 10 + (b - '0');
+				if (point) {
+					fraction++;
+				}
+				plain = ++digits <= 15;
+			} else if (b == '.' && !point) {
+				point = true;
+			} else {
+				plain = false;
+			}
+		}
+		if (plain && digits > 0) {
+			double value = mantissa / POW10[fraction];
+			return (float)(negative ? -value : value);
+		}
+		try {
+			return Float.parseFloat(new String(token, 0, len, StandardCharsets.US_ASCII));
+		} catch (NumberFormatException e) {
+			throw malformed("bad coefficient");
+		}
+	}
+
+	private int parseInt(int len) throws IOException {
+		int i = 0;
+		boolean negative = false;
+		if (token[0] == '-' || token[0] == '+') {
+			negative = token[0] == '-';
+			i++;
+		}
+		if (i == len) {
+			throw malformed("bad degree");
+		}
+		long value = 0;
+		for (; i < len; i++) {
+			int b = token[i];
+			if (b < '0' || b > '9') {
+				throw malformed("bad degree");
+			}
+			value = value * 10 + (b - '0');
+			if (value > Integer.MAX_VALUE + 1L) {
+				throw malformed("degree out of range");
+			}
+		}
+		value = negative ? -value : value;
+		if (value > Integer.MAX_VALUE) {
+			throw malformed("degree out of range");
+		}
+		return (int)value;
+	}
+
+	private IOException malformed(String what) {
+		return new IOException("Malformed polynomial input at term " + (terms + 1) + ": " + what);
+	}
+}
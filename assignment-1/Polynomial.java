@@ -2,6 +2,7 @@ package poly;
 
 import java.io.IOException;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class implements evaluate, add and multiply for polynomials.
@@ -149,34 +150,69 @@ public class Polynomial {
 			return null;
 		}
 		
-		Node firstP = poly1;
-		Node secondP = poly2;
-		Node finalP = null;
-		for (Node i = firstP; i != null; i = i.next) {
-			Node front = null;
-			Node finalTemp = null;
-			for (Node a = secondP; a != null; a = a.next) {
-				float coe = i.term.coeff * a.term.coeff;
-				int degree = i.term.degree + a.term.degree;
-				Node localTemp = new Node(coe, degree, null);
-				if (finalTemp == null) {
-					front = localTemp;
-					finalTemp = front;
-				} else {
-					finalTemp.next = localTemp;
-					finalTemp = finalTemp.next;
-					}
-				
-				}
-			finalP = Polynomial.add(finalP, front);
-			}
-		return finalP;
+		return PackedPolynomial.multiply(PackedPolynomial.fromList(poly1),
+				PackedPolynomial.fromList(poly2)).toList();
+	}
+
+	/**
+	 * Returns the sum of two polynomials, computed in the given coefficient arithmetic and
+	 * converted back to float coefficients once, at the end. DOES NOT change either of the
+	 * input polynomials. The returned polynomial has all new nodes.
+	 * 
+	 * In LONG and MOD_PRIME modes every coefficient must be an integer; MOD_PRIME works
+	 * modulo ModPolynomial.DEFAULT_MODULUS. For results that must stay exact beyond float,
+	 * use DoublePolynomial, LongPolynomial or ModPolynomial directly.
+	 * 
+	 * @param poly1 First input polynomial (front of polynomial linked list)
+	 * @param poly2 Second input polynomial (front of polynomial linked list)
+	 * @param mode Coefficient arithmetic
+	 * @return A new polynomial which is the sum of the input polynomials
+	 * @throws ArithmeticException In LONG or MOD_PRIME mode, if a coefficient is not an
+	 *         integer; in LONG mode, if a coefficient overflows
+	 */
+	public static Node add(Node poly1, Node poly2, CoefficientMode mode) {
+		switch (mode) {
+		case DOUBLE:
+			return DoublePolynomial.add(DoublePolynomial.fromList(poly1), DoublePolynomial.fromList(poly2)).toList();
+		case LONG:
+			return LongPolynomial.add(LongPolynomial.fromList(poly1), LongPolynomial.fromList(poly2)).toList();
+		case MOD_PRIME:
+			return ModPolynomial.add(ModPolynomial.fromList(poly1, ModPolynomial.DEFAULT_MODULUS),
+					ModPolynomial.fromList(poly2, ModPolynomial.DEFAULT_MODULUS)).toList();
+		default:
+			return add(poly1, poly2);
 		}
+	}
 
-		
+	/**
+	 * Returns the product of two polynomials, computed in the given coefficient arithmetic
+	 * and converted back to float coefficients once, at the end. DOES NOT change either of
+	 * the input polynomials. The returned polynomial has all new nodes.
+	 * 
+	 * In LONG and MOD_PRIME modes every coefficient must be an integer; MOD_PRIME works
+	 * modulo ModPolynomial.DEFAULT_MODULUS.
+	 * 
+	 * @param poly1 First input polynomial (front of polynomial linked list)
+	 * @param poly2 Second input polynomial (front of polynomial linked list)
+	 * @param mode Coefficient arithmetic
+	 * @return A new polynomial which is the product of the input polynomials
+	 * @throws ArithmeticException In LONG or MOD_PRIME mode, if a coefficient is not an
+	 *         integer; in LONG mode, if a coefficient overflows
+	 */
+	public static Node multiply(Node poly1, Node poly2, CoefficientMode mode) {
+		switch (mode) {
+		case DOUBLE:
+			return DoublePolynomial.multiply(DoublePolynomial.fromList(poly1), DoublePolynomial.fromList(poly2)).toList();
+		case LONG:
+			return LongPolynomial.multiply(LongPolynomial.fromList(poly1), LongPolynomial.fromList(poly2)).toList();
+		case MOD_PRIME:
+			return ModPolynomial.multiply(ModPolynomial.fromList(poly1, ModPolynomial.DEFAULT_MODULUS),
+					ModPolynomial.fromList(poly2, ModPolynomial.DEFAULT_MODULUS)).toList();
+		default:
+			return multiply(poly1, poly2);
+		}
+	}
 
-	
-		
 	/**
 	 * Evaluates a polynomial at a given value.
 	 * 
@@ -185,12 +221,33 @@ public class Polynomial {
 	 * @return Value of polynomial p at x
 	 */
 	public static float evaluate(Node poly, float x) {
-		float finalEval = 0;
-		for (Node i = poly; i != null; i = i.next) {
-			finalEval += i.term.coeff * (Math.pow(x, i.term.degree));
-		}
-		
-		return finalEval;
+		return Horner.evaluate(PackedPolynomial.fromList(poly), x);
+	}
+	
+	/**
+	 * Evaluates a polynomial at many values. The value at xs[i] is stored in out[i].
+	 * 
+	 * @param poly Polynomial (front of linked list) to be evaluated
+	 * @param xs Values at which evaluation is to be done
+	 * @param out Results, at least as long as xs
+	 * @throws IllegalArgumentException If out is shorter than xs
+	 */
+	public static void evaluate(Node poly, float[] xs, float[] out) {
+		Horner.evaluate(PackedPolynomial.fromList(poly), xs, out);
+	}
+	
+	/**
+	 * Evaluates a polynomial at many values, with the values split across the tasks
+	 * of a fork-join pool. The value at xs[i] is stored in out[i].
+	 * 
+	 * @param poly Polynomial (front of linked list) to be evaluated
+	 * @param xs Values at which evaluation is to be done
+	 * @param out Results, at least as long as xs
+	 * @param pool Pool in which to run the evaluation
+	 * @throws IllegalArgumentException If out is shorter than xs
+	 */
+	public static void evaluate(Node poly, float[] xs, float[] out, ForkJoinPool pool) {
+		Horner.evaluate(PackedPolynomial.fromList(poly), xs, out, pool);
 	}
 	
 	/**
@@ -200,15 +257,6 @@ public class Polynomial {
 	 * @return String representation, in descending order of degrees
 	 */
 	public static String toString(Node poly) {
-		if (poly == null) {
-			return "0";
-		} 
-		
-		String retval = poly.term.toString();
-		for (Node current = poly.next ; current != null ;
-		current = current.next) {
-			retval = current.term.toString() + " + " + retval;
-		}
-		return retval;
+		return PolyFormatter.toString(poly);
 	}	
 }
@@ -0,0 +1,237 @@
+package poly;
+
+import java.util.Arrays;
+
+/**
+ * This class implements a mutable running polynomial that terms and whole polynomials
+ * are added to in place, for loops that would otherwise call Polynomial.add over and
+ * over and allocate a new list on every step. When done, the accumulated polynomial is
+ * frozen into a new linked list or packed polynomial; the accumulator can go on being
+ * used after that.
+ *
+ * Coefficients are held in double precision, either in a DegreeMap (for sparse
+ * polynomials, the default) or in a flat array over a window of degrees that grows as
+ * needed (for dense polynomials). Multiplying by a monomial scales the coefficients in
+ * place and only records the degree shift, so no entries move.
+ *
+ * @author runb-cs112
+ *
+ */
+public class PolynomialAccumulator implements TermConsumer {
+
+	/**
+	 * Sparse storage, keyed by degree minus shift; null in dense mode.
+	 */
+	private DegreeMap map;
+
+	/**
+	 * Dense storage: window[k] holds the coefficient of degree lo + k + shift;
+	 * null in sparse mode.
+	 */
+	private double[] window;
+	private int lo;
+
+	/**
+	 * Amount to add to every stored degree.
+	 */
+	private int shift;
+
+	/**
+	 * Initializes an empty accumulator with sparse (hashed) storage.
+	 */
+	public PolynomialAccumulator() {
+		map = new DegreeMap(16);
+	}
+
+	/**
+	 * Initializes an empty accumulator with dense storage, sized for the given degree
+	 * range. Terms outside the range are still accepted; the range grows to take them.
+	 *
+	 * @param minDegree Lowest degree expected
+	 * @param maxDegree Highest degree expected
+	 * @throws IllegalArgumentException If maxDegree is less than minDegree
+	 */
+	public PolynomialAccumulator(int minDegree, int maxDegree) {
+		if (maxDegree < minDegree) {
+			throw new IllegalArgumentException("Empty degree range [" + minDegree + "," + maxDegree + "]");
+		}
+		window = new double[maxDegree - minDegree + 1];
+		lo = minDegree;
+	}
+
+	/**
+	 * Adds one term.
+	 *
+	 * @param coeff Coefficient of term
+	 * @param degree Degree of term
+	 */
+	public void addTerm(float coeff, int degree) {
+		add(degree - shift, coeff);
+	}
+
+	/**
+	 * Adds one term; the same as addTerm.
+	 *
+	 * @param coeff Coefficient of term
+	 * @param degree Degree of term
+	 */
+	public void accept(float coeff, int degree) {
+		add(degree - shift, coeff);
+	}
+
+	/**
+	 * Adds a polynomial. The polynomial is not changed.
+	 *
+	 * @param poly Polynomial (front of linked list)
+	 */
+	public void addPoly(Node poly) {
+		for (Node ptr = poly; ptr != null; ptr = ptr.next) {
+			add(ptr.term.degree - shift, ptr.term.coeff);
+		}
+	}
+
+	/**
+	 * Adds a packed polynomial.
+	 *
+	 * @param p Polynomial
+	 */
+	public void addPoly(PackedPolynomial p) {
+		addScaled(p, 1);
+	}
+
+	/**
+	 * Adds c times a polynomial. The polynomial is not changed.
+	 *
+	 * @param poly Polynomial (front of linked list)
+	 * @param c Factor
+	 */
+	public void addScaled(Node poly, float c) {
+		for (Node ptr = poly; ptr != null; ptr = ptr.next) {
+			add(ptr.term.degree - shift, (double)c * ptr.term.coeff);
+		}
+	}
+
+	/**
+	 * Adds c times a packed polynomial.
+	 *
+	 * @param p Polynomial
+	 * @param c Factor
+	 */
+	public void addScaled(PackedPolynomial p, float c) {
+		if (p.size == 0 || c == 0) {
+			return;
+		}
+		if (window != null) {
+			ensureWindow(p.degrees[0] - shift, p.degrees[p.size - 1] - shift);
+			int base = shift + lo;
+			for (int i = 0; i < p.size; i++) {
+				window[p.degrees[i] - base] += (double)c * p.coeffs[i];
+			}
+			return;
+		}
+		for (int i = 0; i < p.size; i++) {
+			map.add(p.degrees[i] - shift, (double)c * p.coeffs[i]);
+		}
+	}
+
+	/**
+	 * Multiplies the accumulated polynomial by c*x^k, in place.
+	 *
+	 * @param c Coefficient of the monomial
+	 * @param k Degree of the monomial
+	 */
+	public void mulByMonomial(float c, int k) {
+		if (window != null) {
+			if (c == 0) {
+				Arrays.fill(window, 0);
+			} else if (c != 1) {
+				for (int i = 0; i < window.length; i++) {
+					window[i] *= c;
+				}
+			}
+		} else if (c != 1) {
+			map.scale(c);
+		}
+		shift += k;
+	}
+
+	/**
+	 * Removes all terms, keeping the allocated storage.
+	 */
+	public void clear() {
+		if (window != null) {
+			Arrays.fill(window, 0);
+		} else {
+			map.clear();
+		}
+		shift = 0;
+	}
+
+	/**
+	 * Returns the accumulated polynomial as a packed polynomial. Terms whose coefficient
+	 * has come to zero are left out.
+	 *
+	 * @return Packed polynomial
+	 */
+	public PackedPolynomial toPacked() {
+		if (window != null) {
+			return SparseMultiplier.fromDense(window, lo + shift);
+		}
+		return map.toPacked(shift);
+	}
+
+	/**
+	 * Returns the accumulated polynomial as a linked list of all new nodes, lowest degree
+	 * at the front.
+	 *
+	 * @return Front of the linked list, or null if the polynomial is zero
+	 */
+	public Node toList() {
+		return toPacked().toList();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return toPacked().toString();
+	}
+
+	private void add(int key, double coeff) {
+		if (window == null) {
+			map.add(key, coeff);
+			return;
+		}
+		int i = key - lo;
+		if (i < 0 || i >= window.length) {
+			ensureWindow(key, key);
+			i = key - lo;
+		}
+		window[i] += coeff;
+	}
+
+	/**
+	 * Grows the dense window, at least doubling it, to cover stored degrees [from,to].
+	 */
+	private void ensureWindow(int from, int to) {
+		int hi = lo + window.length - 1;
+		if (from >= lo && to <= hi) {
+			return;
+		}
+		long newLo = Math.min(from, lo), newHi = Math.max(to, hi);
+		long grow = Math.max(newHi - newLo + 1, 2L * window.length) - (newHi - newLo + 1);
+		if (from < lo) {
+			newLo = Math.max(Integer.MIN_VALUE + 1L, newLo - grow);
+		} else {
+			newHi = Math.min(Integer.MAX_VALUE, newHi + grow);
+		}
+		long length = newHi - newLo + 1;
+		if (length > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("Degree range [" + newLo + "," + newHi + "] too wide for dense storage");
+		}
+		double[] grown = new double[(int)length];
+		System.arraycopy(window, 0, grown, (int)(lo - newLo), window.length);
+		window = grown;
+		lo = (int)newLo;
+	}
+}
@@ -0,0 +1,155 @@
+package poly;
+
+/**
+ * This class implements one-pass multiplication of sparse polynomials. All n*m term
+ * products are accumulated by degree - in a flat array when the degree range of the
+ * product is small enough, in a DegreeMap otherwise - and the result is emitted once,
+ * in canonical order.
+ *
+ * @author runb-cs112
+ *
+ */
+public class SparseMultiplier {
+
+	/**
+	 * A flat accumulator is used when the product's degree range is at most this many
+	 * times the number of term products.
+	 */
+	static final int FLAT_RANGE_FACTOR = 4;
+
+	/**
+	 * A hash accumulator is presized for at most this many times the number of operand
+	 * terms; products with more distinct degrees than that grow it as they go.
+	 */
+	static final int HASH_PRESIZE_FACTOR = 4;
+
+	// prevent instantiation
+	private SparseMultiplier() { }
+
+	/**
+	 * Returns the product of two polynomials - DOES NOT change either of the input polynomials.
+	 * The returned polynomial has all new nodes.
+	 *
+	 * @param poly1 First input polynomial (front of polynomial linked list)
+	 * @param poly2 Second input polynomial (front of polynomial linked list)
+	 * @return A new polynomial which is the product of the input polynomials
+	 */
+	public static Node multiply(Node poly1, Node poly2) {
+		return multiply(PackedPolynomial.fromList(poly1), PackedPolynomial.fromList(poly2)).toList();
+	}
+
+	/**
+	 * Returns the product of two packed polynomials.
+	 *
+	 * @param a First polynomial
+	 * @param b Second polynomial
+	 * @return Product
+	 */
+	public static PackedPolynomial multiply(PackedPolynomial a, PackedPolynomial b) {
+		return multiply(a, b, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the terms of degree at most maxDegree of the product of two packed
+	 * polynomials. Products of higher degree are never formed.
+	 *
+	 * @param a First polynomial
+	 * @param b Second polynomial
+	 * @param maxDegree Highest degree to keep
+	 * @return Truncated product
+	 */
+	public static PackedPolynomial multiply(PackedPolynomial a, PackedPolynomial b, int maxDegree) {
+		if (a.size == 0 || b.size == 0 || (long)a.minDegree() + b.minDegree() > maxDegree) {
+			return PackedPolynomial.ZERO;
+		}
+		long products = (long)a.size * b.size;
+		long lo = (long)a.minDegree() + b.minDegree();
+		long range = Math.min((long)a.maxDegree() + b.maxDegree(), maxDegree) - lo + 1;
+		if (range <= FLAT_RANGE_FACTOR * products && range <= Integer.MAX_VALUE - 8) {
+			return multiplyFlat(a, b, maxDegree, (int)lo, (int)range);
+		}
+		return multiplyHashed(a, b, maxDegree, expectedDegrees(products, range, a.size, b.size));
+	}
+
+	/**
+	 * Returns the number of distinct degrees to presize a hash accumulator for: the number
+	 * of term products, the degree range and a small multiple of the operand sizes bound
+	 * it, so sparse products with many colliding degrees do not allocate for n*m up front.
+	 *
+	 * @param products Number of term products
+	 * @param range Degree range of the product
+	 * @param sizeA Number of terms of the first operand
+	 * @param sizeB Number of terms of the second operand
+	 * @return Expected number of distinct degrees
+	 */
+	static int expectedDegrees(long products, long range, int sizeA, int sizeB) {
+		long terms = HASH_PRESIZE_FACTOR * ((long)sizeA + sizeB);
+		return (int)Math.min(Math.min(products, range), Math.min(terms, 1 << 28));
+	}
+
+	private static PackedPolynomial multiplyFlat(PackedPolynomial a, PackedPolynomial b, int max,
+			int lo, int range) {
+		double[] acc = new double[range];
+		float[] bc = b.coeffs;
+		int[] bd = b.degrees;
+		int bn = b.size;
+		for (int i = 0; i < a.size; i++) {
+			double c = a.coeffs[i];
+			int d = a.degrees[i];
+			// a is ascending, so the usable prefix of b only shrinks
+			while (bn > 0 && bd[bn - 1] > max - d) {
+				bn--;
+			}
+			int base = d - lo;
+			for (int j = 0; j < bn; j++) {
+				acc[base + bd[j]] += c * bc[j];
+			}
+		}
+		return fromDense(acc, lo);
+	}
+
+	private static PackedPolynomial multiplyHashed(PackedPolynomial a, PackedPolynomial b, int max,
+			int expected) {
+		DegreeMap acc = new DegreeMap(expected);
+		int bn = b.size;
+		for (int i = 0; i < a.size; i++) {
+			double c = a.coeffs[i];
+			int d = a.degrees[i];
+			while (bn > 0 && b.degrees[bn - 1] > max - d) {
+				bn--;
+			}
+			for (int j = 0; j < bn; j++) {
+				acc.add(d + b.degrees[j], c * b.coeffs[j]);
+			}
+		}
+		return acc.toPacked();
+	}
+
+	/**
+	 * Packs a dense coefficient array, where index k holds the coefficient of degree lo+k.
+	 * Zero coefficients are dropped.
+	 *
+	 * @param acc Dense coefficients
+	 * @param lo Degree of acc[0]
+	 * @return Packed polynomial
+	 */
+	static PackedPolynomial fromDense(double[] acc, int lo) {
+		int n = 0;
+		for (double c : acc) {
+			if ((float)c != 0) {
+				n++;
+			}
+		}
+		float[] coeffs = new float[n];
+		int[] degrees = new int[n];
+		n = 0;
+		for (int k = 0; k < acc.length; k++) {
+			float c = (float)acc[k];
+			if (c != 0) {
+				coeffs[n] = c;
+				degrees[n++] = lo + k;
+			}
+		}
+		return new PackedPolynomial(coeffs, degrees, n);
+	}
+}
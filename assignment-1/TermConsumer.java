@@ -0,0 +1,19 @@
+package poly;
+
+/**
+ * This interface is implemented by anything that takes polynomial terms one at a time,
+ * such as the streaming mode of PolyReader.
+ *
+ * @author runb-cs112
+ *
+ */
+public interface TermConsumer {
+
+	/**
+	 * Takes one term.
+	 *
+	 * @param coeff Coefficient of term
+	 * @param degree Degree of term
+	 */
+	void accept(float coeff, int degree);
+}
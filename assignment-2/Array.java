@@ -19,6 +19,11 @@ public class Array {
 	 */
 	public int[] values;
 	
+	/**
+	 * Sparse or off-heap storage of the values, used when values is null
+	 */
+	public ArrayStorage storage;
+	
 	/**
 	 * Initializes with name, and sets values to null.
 	 * 
@@ -29,11 +34,61 @@ public class Array {
         values = null;
     }
 	
+	/**
+	 * Returns a value, from values or else from storage.
+	 * 
+	 * @param index Item index
+	 * @return Item value
+	 * @throws ArrayIndexOutOfBoundsException If index is out of bounds
+	 */
+	public int get(int index) {
+		int[] v = values;
+		return v != null ? v[index] : storage.get(index);
+	}
+	
+	/**
+	 * Returns the number of values.
+	 * 
+	 * @return Length, 0 if there are no values
+	 */
+	public int length() {
+		return values != null ? values.length : storage != null ? storage.length() : 0;
+	}
+	
+	/**
+	 * Returns the storage of the values: a DenseStorage over values if it is set.
+	 * 
+	 * @return Storage, null if there are no values
+	 */
+	public ArrayStorage storage() {
+		return values != null ? new DenseStorage(values) : storage;
+	}
+	
+	/**
+	 * Sets the storage of the values. Dense storage is unwrapped into values, any other
+	 * kind is kept in storage, with values set to null.
+	 * 
+	 * @param s Storage
+	 */
+	public void setStorage(ArrayStorage s) {
+		if (s instanceof DenseStorage) {
+			values = ((DenseStorage)s).items;
+			storage = null;
+		} else {
+			values = null;
+			storage = s;
+		}
+	}
+	
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
 	public String toString() {
-		if (values == null || values.length == 0) {
+		if (values == null) {
+			// only a summary: sparse and off-heap arrays can be billions of items long
+			return storage == null ? name + "=[ ]" : name + "=[" + storage + "]";
+		}
+		if (values.length == 0) {
 			return name + "=[ ]";
 		}
 		StringBuilder sb = new StringBuilder();
@@ -0,0 +1,99 @@
+package app;
+
+/**
+ * This interface is the storage of an array's items, behind Array. Items are ints,
+ * indexed from 0, and are 0 until set. There are three implementations, for different
+ * sizes and fill ratios: DenseStorage, an int[] on the heap; SparseStorage, a hash map
+ * of the items that are set; and OffHeapStorage, direct or memory-mapped buffers outside
+ * the heap, for arrays too large for an int[]. create picks one from the declared length
+ * and the number of items to be set.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public interface ArrayStorage {
+
+	/**
+	 * Longest array kept dense on the heap; longer ones that are not sparse go off-heap.
+	 */
+	int DENSE_MAX = 1 << 26;
+
+	/**
+	 * An array is stored sparse if fewer than 1 in SPARSE_RATIO of its items are set; a
+	 * sparse item costs about this many times the 4 bytes of a dense one.
+	 */
+	int SPARSE_RATIO = 4;
+
+	/**
+	 * Shortest array stored sparse; shorter ones are always dense, being small anyway.
+	 */
+	int SPARSE_MIN = 1024;
+
+	/**
+	 * Returns the number of items.
+	 *
+	 * @return Length
+	 */
+	int length();
+
+	/**
+	 * Returns an item.
+	 *
+	 * @param index Item index
+	 * @return Item value
+	 * @throws ArrayIndexOutOfBoundsException If index is out of bounds
+	 */
+	int get(int index);
+
+	/**
+	 * Sets an item.
+	 *
+	 * @param index Item index
+	 * @param value Item value
+	 * @throws ArrayIndexOutOfBoundsException If index is out of bounds
+	 */
+	void set(int index, int value);
+
+	/**
+	 * Returns the approximate memory taken by the items, in bytes.
+	 *
+	 * @return Bytes
+	 */
+	long bytes();
+
+	/**
+	 * Returns the items as a new int[].
+	 *
+	 * @return Items
+	 */
+	default int[] toArray() {
+		int[] items = new int[length()];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = get(i);
+		}
+		return items;
+	}
+
+	/**
+	 * Returns new, all-zero storage for an array, of the kind that suits its length and
+	 * the number of items that will be set: sparse if the array is long and few items
+	 * are set, dense if it fits on the heap, off-heap otherwise.
+	 *
+	 * @param length Number of items
+	 * @param entries Number of items that will be set, or an estimate
+	 * @return New storage
+	 * @throws IllegalArgumentException If length is negative
+	 */
+	static ArrayStorage create(int length, long entries) {
+		if (length < 0) {
+			throw new IllegalArgumentException("Negative array length: " + length);
+		}
+		if (length >= SPARSE_MIN && entries * SPARSE_RATIO < length) {
+			return new SparseStorage(length, (int)entries);
+		}
+		if (length <= DENSE_MAX) {
+			return new DenseStorage(new int[length]);
+		}
+		return new OffHeapStorage(length);
+	}
+}
@@ -0,0 +1,134 @@
+package app;
+
+/**
+ * This class holds the values of one evaluation of a compiled expression: a value for
+ * each simple variable and the items of each array, bound by name or by slot. Each
+ * request to evaluate gets bindings of its own, while the compiled expression itself is
+ * shared. Names not in the expression are ignored. Simple variables not bound have
+ * value 0; every array in the expression must be bound before evaluating.
+ *
+ * Bindings are not safe for use by more than one thread at a time; hand them off to
+ * another thread (as EvaluationService.submit does) only once they are filled in.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class Bindings {
+
+	private final CompiledExpression expr;
+	private final int[] scalars;
+	private final int[][] arrays;
+
+	/**
+	 * Storage of arrays bound as ArrayStorage, by slot; null while there are none
+	 */
+	private ArrayStorage[] storage;
+
+	/**
+	 * Initializes with no values bound.
+	 *
+	 * @param expr Compiled expression the values are for
+	 */
+	public Bindings(CompiledExpression expr) {
+		this.expr = expr;
+		scalars = new int[expr.scalarNames.length];
+		arrays = new int[expr.arrayNames.length][];
+	}
+
+	/**
+	 * Binds a simple variable.
+	 *
+	 * @param name Variable name
+	 * @param value Value
+	 * @return This object
+	 */
+	public Bindings set(String name, int value) {
+		int slot = expr.scalarSlot(name);
+		if (slot >= 0) {
+			scalars[slot] = value;
+		}
+		return this;
+	}
+
+	/**
+	 * Binds a simple variable by slot.
+	 *
+	 * @param slot Scalar slot
+	 * @param value Value
+	 * @return This object
+	 */
+	public Bindings set(int slot, int value) {
+		scalars[slot] = value;
+		return this;
+	}
+
+	/**
+	 * Binds an array to its items, which are used as is, not copied.
+	 *
+	 * @param name Array name
+	 * @param items Items
+	 * @return This object
+	 */
+	public Bindings setArray(String name, int[] items) {
+		int slot = expr.arraySlot(name);
+		if (slot >= 0) {
+			arrays[slot] = items;
+			if (storage != null) {
+				storage[slot] = new DenseStorage(items);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Binds an array to sparse, off-heap or any other storage.
+	 *
+	 * @param name Array name
+	 * @param items Storage of items
+	 * @return This object
+	 */
+	public Bindings setArray(String name, ArrayStorage items) {
+		int slot = expr.arraySlot(name);
+		if (slot < 0) {
+			return this;
+		}
+		if (items instanceof DenseStorage) {
+			return setArray(name, ((DenseStorage)items).items);
+		}
+		if (storage == null) {
+			storage = new ArrayStorage[arrays.length];
+			for (int s = 0; s < arrays.length; s++) {
+				if (arrays[s] != null) {
+					storage[s] = new DenseStorage(arrays[s]);
+				}
+			}
+		}
+		arrays[slot] = null;
+		storage[slot] = items;
+		return this;
+	}
+
+	/**
+	 * Evaluates the expression with these values, on the calling thread.
+	 *
+	 * @return Result of evaluation
+	 * @throws IllegalStateException If an array in the expression is not bound
+	 */
+	public float evaluate() {
+		for (int slot = 0; slot < arrays.length; slot++) {
+			if (arrays[slot] == null && (storage == null || storage[slot] == null)) {
+				throw new IllegalStateException("Array " + expr.arrayNames[slot] + " is not bound");
+			}
+		}
+		return storage == null ? expr.evaluate(scalars, arrays) : expr.evaluate(scalars, storage);
+	}
+
+	/**
+	 * Returns the compiled expression the values are for.
+	 *
+	 * @return Compiled expression
+	 */
+	public CompiledExpression expression() {
+		return expr;
+	}
+}
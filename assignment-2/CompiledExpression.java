@@ -0,0 +1,468 @@
+package app;
+
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+
+/**
+ * This class holds an expression compiled once into a postfix program, for evaluating
+ * the same expression many times with different values. Simple variables and arrays are
+ * bound to slots - indexes into the scalar and array names - so evaluation runs on
+ * primitive arrays, with no string handling, no name lookups and no allocation.
+ *
+ * Evaluation is tiered. A new compiled expression is interpreted; once it has been
+ * evaluated tierThreshold times it is promoted to a tree of method handles that the JIT
+ * compiles like a hand-written method (see ExpressionHandles). Programs too large to
+ * profit stay interpreted.
+ *
+ * An optimized program (see ExpressionOptimizer) can also save a value it will need
+ * again in a temporary slot, kept in the value stack after the maxDepth entries the
+ * evaluation itself uses, and load it back later instead of recomputing it.
+ *
+ * Results are the same as those of Expression.evaluate, in either tier: values are
+ * combined in float arithmetic, and an array index is truncated to an int. Instances
+ * can be shared between threads; promotion is the only change after they are built,
+ * and it does not change results.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class CompiledExpression {
+
+	/**
+	 * Program-only instruction kinds, beyond the ExprNode kinds: push the value of a
+	 * temporary slot, and copy the top of the stack to a temporary slot, leaving it there
+	 */
+	static final int LOAD = 7, STORE = 8;
+
+	/**
+	 * Evaluation stacks for evaluate(int[], int[][]), one per thread
+	 */
+	private static final ThreadLocal<float[]> STACKS = ThreadLocal.withInitial(() -> new float[64]);
+
+	/**
+	 * Evaluations after which an expression is promoted out of the interpreter
+	 */
+	private static volatile int tierThreshold = 10000;
+
+	private final String source;
+
+	/**
+	 * Postfix instructions: an ExprNode kind, LOAD or STORE in the low 8 bits, argument
+	 * above - constant index for CONST, slot for VAR and ARRAY, temporary slot for LOAD
+	 * and STORE
+	 */
+	final int[] code;
+
+	final float[] constants;
+	final String[] scalarNames;
+	final String[] arrayNames;
+	final SymbolTable scalarSymbols, arraySymbols;
+
+	/**
+	 * Deepest the value stack gets
+	 */
+	final int maxDepth;
+
+	/**
+	 * Number of temporary slots
+	 */
+	final int temps;
+
+	/**
+	 * Evaluations so far, while interpreted; updated without synchronization, since an
+	 * approximate count will do
+	 */
+	private int invocations;
+
+	/**
+	 * Promoted form, null while interpreted
+	 */
+	private volatile MethodHandle handle;
+
+	/**
+	 * Initializes with a program and the symbol tables its slots refer to. The tables are
+	 * taken over, and must not be changed after this.
+	 */
+	CompiledExpression(String source, int[] code, float[] constants, SymbolTable scalarSymbols,
+			SymbolTable arraySymbols, int maxDepth, int temps) {
+		this.source = source;
+		this.code = code;
+		this.constants = constants;
+		this.scalarSymbols = scalarSymbols;
+		this.arraySymbols = arraySymbols;
+		this.scalarNames = scalarSymbols.names();
+		this.arrayNames = arraySymbols.names();
+		this.maxDepth = maxDepth;
+		this.temps = temps;
+	}
+
+	/**
+	 * Evaluates the expression.
+	 *
+	 * @param scalars Values of the simple variables, by slot
+	 * @param arrays Values of the arrays, by slot
+	 * @return Result of evaluation
+	 */
+	public float evaluate(int[] scalars, int[][] arrays) {
+		MethodHandle h = handle;
+		if (h != null) {
+			return invoke(h, scalars, arrays);
+		}
+		float[] stack = STACKS.get();
+		if (stack.length < maxDepth + temps) {
+			stack = new float[Math.max(maxDepth + temps, stack.length * 2)];
+			STACKS.set(stack);
+		}
+		return evaluate(scalars, arrays, stack);
+	}
+
+	/**
+	 * Evaluates the expression on a caller-supplied value stack.
+	 *
+	 * @param scalars Values of the simple variables, by slot
+	 * @param arrays Values of the arrays, by slot
+	 * @param stack Value stack, at least stackSize() long
+	 * @return Result of evaluation
+	 */
+	public float evaluate(int[] scalars, int[][] arrays, float[] stack) {
+		MethodHandle h = handle;
+		if (h != null) {
+			return invoke(h, scalars, arrays);
+		}
+		if (++invocations == tierThreshold) {
+			promote();
+		}
+		return interpret(scalars, arrays, stack);
+	}
+
+	/**
+	 * Tells whether the expression has been promoted out of the interpreter.
+	 *
+	 * @return True if promoted
+	 */
+	public boolean isPromoted() {
+		return handle != null;
+	}
+
+	/**
+	 * Sets the number of evaluations after which compiled expressions are promoted out of
+	 * the interpreter; 1 promotes on first use. Expressions already past the old threshold
+	 * are not affected.
+	 *
+	 * @param threshold Number of evaluations, at least 1
+	 * @throws IllegalArgumentException If threshold is less than 1
+	 */
+	public static void setTierThreshold(int threshold) {
+		if (threshold < 1) {
+			throw new IllegalArgumentException("Tier threshold must be at least 1: " + threshold);
+		}
+		tierThreshold = threshold;
+	}
+
+	/**
+	 * Builds the promoted form, if the program is small enough. The handle tree has one
+	 * handle per node of the expression tree, with values saved in temporary slots
+	 * recomputed where they are loaded, so it is the size of the tree that is checked.
+	 */
+	private synchronized void promote() {
+		if (handle == null && treeSize() <= ExpressionHandles.MAX_SIZE) {
+			handle = ExpressionHandles.compile(tree());
+		}
+	}
+
+	/**
+	 * Returns the number of nodes in the expression tree, counting a value loaded from a
+	 * temporary slot as the whole subtree that computed it.
+	 */
+	private long treeSize() {
+		long[] sizes = new long[Math.max(maxDepth, 1)];
+		long[] saved = new long[temps];
+		int sp = 0;
+		for (int ins : code) {
+			switch (ins & 0xFF) {
+			case ExprNode.CONST:
+			case ExprNode.VAR:
+				sizes[sp++] = 1;
+				break;
+			case LOAD:
+				sizes[sp++] = saved[ins >>> 8];
+				break;
+			case STORE:
+				saved[ins >>> 8] = sizes[sp - 1];
+				break;
+			case ExprNode.ARRAY:
+				sizes[sp - 1]++;
+				break;
+			default:
+				sp--;
+				sizes[sp - 1] = Math.min(sizes[sp - 1] + sizes[sp] + 1, Integer.MAX_VALUE);
+			}
+		}
+		return sizes[0];
+	}
+
+	private static float invoke(MethodHandle h, int[] scalars, int[][] arrays) {
+		try {
+			return (float)h.invokeExact(scalars, arrays);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);    // no checked exceptions from the handle tree
+		}
+	}
+
+	private float interpret(int[] scalars, int[][] arrays, float[] stack) {
+		int[] code = this.code;
+		float[] constants = this.constants;
+		int base = maxDepth;    // temporary slots follow the stack proper
+		int sp = 0;
+		for (int pc = 0; pc < code.length; pc++) {
+			int ins = code[pc];
+			switch (ins & 0xFF) {
+			case ExprNode.CONST:
+				stack[sp++] = constants[ins >>> 8];
+				break;
+			case ExprNode.VAR:
+				stack[sp++] = scalars[ins >>> 8];
+				break;
+			case ExprNode.ARRAY:
+				stack[sp - 1] = arrays[ins >>> 8][(int)stack[sp - 1]];
+				break;
+			case ExprNode.ADD:
+				sp--;
+				stack[sp - 1] = stack[sp - 1] + stack[sp];
+				break;
+			case ExprNode.SUB:
+				sp--;
+				stack[sp - 1] = stack[sp - 1] - stack[sp];
+				break;
+			case ExprNode.MUL:
+				sp--;
+				stack[sp - 1] = stack[sp - 1] * stack[sp];
+				break;
+			case ExprNode.DIV:
+				sp--;
+				stack[sp - 1] = stack[sp - 1] / stack[sp];
+				break;
+			case LOAD:
+				stack[sp++] = stack[base + (ins >>> 8)];
+				break;
+			default:
+				stack[base + (ins >>> 8)] = stack[sp - 1];
+			}
+		}
+		return stack[0];
+	}
+
+	/**
+	 * Evaluates the expression with values taken from variable and array lists, by name.
+	 * Names missing from the lists have value 0 (or, for an array, no items).
+	 *
+	 * @param vars The variables array list, with values for all variables in the expression
+	 * @param arrays The arrays array list, with values for all array items
+	 * @return Result of evaluation
+	 */
+	public float evaluate(ArrayList<Variable> vars, ArrayList<Array> arrays) {
+		int[] scalars = new int[scalarNames.length];
+		for (Variable v : vars) {
+			int slot = scalarSlot(v.name);
+			if (slot >= 0) {
+				scalars[slot] = v.value;
+			}
+		}
+		int[][] items = new int[arrayNames.length][];
+		ArrayStorage[] storage = null;
+		for (Array a : arrays) {
+			int slot = arraySlot(a.name);
+			if (slot < 0) {
+				continue;
+			}
+			items[slot] = a.values;
+			if (a.values == null && a.storage != null) {
+				if (storage == null) {
+					storage = new ArrayStorage[arrayNames.length];
+				}
+				storage[slot] = a.storage;
+			}
+		}
+		if (storage == null) {
+			return evaluate(scalars, items);
+		}
+		for (int slot = 0; slot < items.length; slot++) {
+			if (storage[slot] == null && items[slot] != null) {
+				storage[slot] = new DenseStorage(items[slot]);
+			}
+		}
+		return evaluate(scalars, storage);
+	}
+
+	/**
+	 * Evaluates the expression with array items read through ArrayStorage, for arrays
+	 * held sparse or off-heap. This is always interpreted; it does not count towards
+	 * promotion.
+	 *
+	 * @param scalars Values of the simple variables, by slot
+	 * @param arrays Storage of the arrays, by slot
+	 * @return Result of evaluation
+	 */
+	public float evaluate(int[] scalars, ArrayStorage[] arrays) {
+		float[] stack = STACKS.get();
+		if (stack.length < maxDepth + temps) {
+			stack = new float[Math.max(maxDepth + temps, stack.length * 2)];
+			STACKS.set(stack);
+		}
+		int[] code = this.code;
+		float[] constants = this.constants;
+		int base = maxDepth;
+		int sp = 0;
+		for (int pc = 0; pc < code.length; pc++) {
+			int ins = code[pc];
+			switch (ins & 0xFF) {
+			case ExprNode.CONST:
+				stack[sp++] = constants[ins >>> 8];
+				break;
+			case ExprNode.VAR:
+				stack[sp++] = scalars[ins >>> 8];
+				break;
+			case ExprNode.ARRAY:
+				stack[sp - 1] = arrays[ins >>> 8].get((int)stack[sp - 1]);
+				break;
+			case LOAD:
+				stack[sp++] = stack[base + (ins >>> 8)];
+				break;
+			case STORE:
+				stack[base + (ins >>> 8)] = stack[sp - 1];
+				break;
+			default:
+				sp--;
+				stack[sp - 1] = ExprNode.apply(ins & 0xFF, stack[sp - 1], stack[sp]);
+			}
+		}
+		return stack[0];
+	}
+
+	/**
+	 * Returns the slot of a simple variable.
+	 *
+	 * @param name Variable name
+	 * @return Slot, or -1 if the expression has no such variable
+	 */
+	public int scalarSlot(String name) {
+		return scalarSymbols.find(name);
+	}
+
+	/**
+	 * Returns the slot of an array.
+	 *
+	 * @param name Array name
+	 * @return Slot, or -1 if the expression has no such array
+	 */
+	public int arraySlot(String name) {
+		return arraySymbols.find(name);
+	}
+
+	/**
+	 * Returns the names of the simple variables, in slot order (order of first appearance).
+	 *
+	 * @return Names, a new array
+	 */
+	public String[] scalarNames() {
+		return scalarNames.clone();
+	}
+
+	/**
+	 * Returns the names of the arrays, in slot order (order of first appearance).
+	 *
+	 * @return Names, a new array
+	 */
+	public String[] arrayNames() {
+		return arrayNames.clone();
+	}
+
+	/**
+	 * Returns the number of postfix instructions.
+	 *
+	 * @return Program length
+	 */
+	public int size() {
+		return code.length;
+	}
+
+	/**
+	 * Returns the number of arithmetic operations and array accesses in the program, the
+	 * work done per evaluation.
+	 *
+	 * @return Number of operations
+	 */
+	public int operations() {
+		int n = 0;
+		for (int ins : code) {
+			int kind = ins & 0xFF;
+			if (kind >= ExprNode.ARRAY && kind <= ExprNode.DIV) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Returns the length of value stack that evaluate needs, temporary slots included.
+	 *
+	 * @return Stack size
+	 */
+	public int stackSize() {
+		return maxDepth + temps;
+	}
+
+	/**
+	 * Returns the expression tree of the program, built from the postfix code. A value
+	 * saved in a temporary slot is one node shared by all its uses.
+	 *
+	 * @return Root of tree
+	 */
+	public ExprNode tree() {
+		ExprNode[] stack = new ExprNode[Math.max(maxDepth, 1)];
+		ExprNode[] saved = new ExprNode[temps];
+		int sp = 0;
+		for (int ins : code) {
+			int kind = ins & 0xFF;
+			switch (kind) {
+			case LOAD:
+				stack[sp++] = saved[ins >>> 8];
+				break;
+			case STORE:
+				saved[ins >>> 8] = stack[sp - 1];
+				break;
+			case ExprNode.CONST:
+				stack[sp++] = ExprNode.constant(constants[ins >>> 8]);
+				break;
+			case ExprNode.VAR:
+				stack[sp++] = ExprNode.variable(ins >>> 8);
+				break;
+			case ExprNode.ARRAY:
+				stack[sp - 1] = ExprNode.array(ins >>> 8, stack[sp - 1]);
+				break;
+			default:
+				sp--;
+				stack[sp - 1] = ExprNode.operator(kind, stack[sp - 1], stack[sp]);
+			}
+		}
+		return stack[0];
+	}
+
+	/**
+	 * Returns the expression text this was compiled from.
+	 *
+	 * @return Expression
+	 */
+	public String source() {
+		return source;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return source;
+	}
+}
@@ -0,0 +1,59 @@
+package app;
+
+/**
+ * This class stores an array's items in an int[] on the heap.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class DenseStorage implements ArrayStorage {
+
+	/**
+	 * The items
+	 */
+	final int[] items;
+
+	/**
+	 * Initializes with an int[] of items, which is used as is, not copied.
+	 *
+	 * @param items Items
+	 */
+	public DenseStorage(int[] items) {
+		this.items = items;
+	}
+
+	/* (non-Javadoc)
+	 * @see app.ArrayStorage#length()
+	 */
+	public int length() {
+		return items.length;
+	}
+
+	/* (non-Javadoc)
+	 * @see app.ArrayStorage#get(int)
+	 */
+	public int get(int index) {
+		return items[index];
+	}
+
+	/* (non-Javadoc)
+	 * @see app.ArrayStorage#set(int, int)
+	 */
+	public void set(int index, int value) {
+		items[index] = value;
+	}
+
+	/* (non-Javadoc)
+	 * @see app.ArrayStorage#bytes()
+	 */
+	public long bytes() {
+		return 4L * items.length;
+	}
+
+	/* (non-Javadoc)
+	 * @see app.ArrayStorage#toArray()
+	 */
+	public int[] toArray() {
+		return items.clone();
+	}
+}
@@ -0,0 +1,229 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * This class holds the working storage of Expression.evaluate: a lexer, a value stack of
+ * primitive floats, an operator stack of byte opcodes, and symbol tables of the variable
+ * and array names. All of it is kept and reused from one evaluation to the next, so once
+ * a context has grown to fit its largest expression, evaluating allocates nothing.
+ *
+ * Each thread has a context of its own for the evaluate methods that do not take one
+ * (see local()); a caller can instead make a context and pass it in. A context must not
+ * be used by two threads at once.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class EvalContext {
+
+	/**
+	 * Operator stack entries other than the four operators, whose entries are their
+	 * ExprNode kinds
+	 */
+	static final byte PAREN = 7, BRACKET = 8;
+
+	/**
+	 * Contexts for the evaluate methods that do not take one, one per thread
+	 */
+	private static final ThreadLocal<EvalContext> CONTEXTS = ThreadLocal.withInitial(EvalContext::new);
+
+	final ExpressionLexer lexer = new ExpressionLexer();
+
+	private float[] values = new float[32];
+	private int valueTop;
+
+	private byte[] ops = new byte[32];
+
+	/**
+	 * Array slot of each BRACKET entry on the operator stack
+	 */
+	private int[] opSlots = new int[32];
+	private int opTop;
+
+	private final SymbolTable varSymbols = new SymbolTable();
+	private final SymbolTable arraySymbols = new SymbolTable();
+
+	/**
+	 * Incremented whenever either symbol table is rebuilt
+	 */
+	private int version;
+
+	/**
+	 * The compiled expression last bound, the symbol table version it was bound against,
+	 * whether all its names were found, and the list position of each of its slots
+	 */
+	private CompiledExpression bound;
+	private int boundVersion;
+	private boolean bindable;
+	private int[] scalarIndex = new int[0], arrayIndex = new int[0];
+
+	/**
+	 * Values of the bound expression's variables and arrays, by slot, filled in by bind
+	 */
+	int[] scalars = new int[0];
+	int[][] items = new int[0][];
+
+	/**
+	 * Initializes an empty context.
+	 */
+	public EvalContext() {
+	}
+
+	/**
+	 * Returns this thread's context.
+	 *
+	 * @return Context
+	 */
+	public static EvalContext local() {
+		return CONTEXTS.get();
+	}
+
+	/**
+	 * Empties both stacks.
+	 */
+	void reset() {
+		valueTop = 0;
+		opTop = 0;
+	}
+
+	void pushValue(float value) {
+		if (valueTop == values.length) {
+			values = Arrays.copyOf(values, valueTop * 2);
+		}
+		values[valueTop++] = value;
+	}
+
+	float popValue() {
+		return values[--valueTop];
+	}
+
+	/**
+	 * Pushes an opcode, with the array slot of a BRACKET entry (ignored for the others).
+	 */
+	void pushOp(byte op, int slot) {
+		if (opTop == ops.length) {
+			ops = Arrays.copyOf(ops, opTop * 2);
+			opSlots = Arrays.copyOf(opSlots, opTop * 2);
+		}
+		ops[opTop] = op;
+		opSlots[opTop++] = slot;
+	}
+
+	boolean hasOps() {
+		return opTop > 0;
+	}
+
+	byte peekOp() {
+		return ops[opTop - 1];
+	}
+
+	byte popOp() {
+		return ops[--opTop];
+	}
+
+	/**
+	 * Returns the array slot of the top entry of the operator stack, which must be a
+	 * BRACKET entry, and pops it.
+	 */
+	int popBracket() {
+		return opSlots[--opTop];
+	}
+
+	/**
+	 * Returns a symbol table of the variable names, with each name in the slot of its
+	 * position in the list. The table is rebuilt only when the names differ from those of
+	 * the previous call.
+	 */
+	SymbolTable varSymbols(ArrayList<Variable> vars) {
+		int n = vars.size();
+		boolean same = varSymbols.size() == n;
+		for (int i = 0; same && i < n; i++) {
+			same = varSymbols.name(i).equals(vars.get(i).name);
+		}
+		if (!same) {
+			varSymbols.clear();
+			for (int i = 0; i < n; i++) {
+				varSymbols.intern(vars.get(i).name);
+			}
+			version++;
+		}
+		return varSymbols;
+	}
+
+	/**
+	 * Returns a symbol table of the array names, with each name in the slot of its
+	 * position in the list. The table is rebuilt only when the names differ from those of
+	 * the previous call.
+	 */
+	SymbolTable arraySymbols(ArrayList<Array> arrays) {
+		int n = arrays.size();
+		boolean same = arraySymbols.size() == n;
+		for (int i = 0; same && i < n; i++) {
+			same = arraySymbols.name(i).equals(arrays.get(i).name);
+		}
+		if (!same) {
+			arraySymbols.clear();
+			for (int i = 0; i < n; i++) {
+				arraySymbols.intern(arrays.get(i).name);
+			}
+			version++;
+		}
+		return arraySymbols;
+	}
+
+	/**
+	 * Fills scalars and items with a compiled expression's values from the lists. The
+	 * list position of each slot is looked up only when the expression or the names in
+	 * the lists change. Returns false, to evaluate some other way, if a name is missing
+	 * from the lists or an array's items are not held in a plain int array.
+	 */
+	boolean bind(CompiledExpression compiled, ArrayList<Variable> vars, ArrayList<Array> arrays) {
+		SymbolTable vs = varSymbols(vars);
+		SymbolTable as = arraySymbols(arrays);
+		if (compiled != bound || version != boundVersion) {
+			bound = compiled;
+			boundVersion = version;
+			bindable = true;
+			String[] scalarNames = compiled.scalarNames, arrayNames = compiled.arrayNames;
+			if (scalarIndex.length < scalarNames.length) {
+				scalarIndex = new int[scalarNames.length];
+				scalars = new int[scalarNames.length];
+			}
+			if (arrayIndex.length < arrayNames.length) {
+				arrayIndex = new int[arrayNames.length];
+				items = new int[arrayNames.length][];
+			}
+			for (int i = 0; i < scalarNames.length; i++) {
+				bindable &= (scalarIndex[i] = vs.find(scalarNames[i])) >= 0;
+			}
+			for (int i = 0; i < arrayNames.length; i++) {
+				bindable &= (arrayIndex[i] = as.find(arrayNames[i])) >= 0;
+			}
+		}
+		if (!bindable) {
+			return false;
+		}
+		for (int i = 0, n = compiled.scalarNames.length; i < n; i++) {
+			scalars[i] = vars.get(scalarIndex[i]).value;
+		}
+		for (int i = 0, n = compiled.arrayNames.length; i < n; i++) {
+			if ((items[i] = arrays.get(arrayIndex[i]).values) == null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the value stack, grown to at least size entries, for a compiled expression
+	 * to evaluate on.
+	 */
+	float[] stack(int size) {
+		if (values.length < size) {
+			values = new float[Math.max(size, values.length * 2)];
+		}
+		return values;
+	}
+}
@@ -0,0 +1,276 @@
+package app;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class evaluates expressions for many threads at once. Expressions are compiled
+ * once into CompiledExpressions, which are immutable in effect and shared by all
+ * requests; each request brings its own Bindings. Nothing here touches the static
+ * Expression methods or the variable and array lists they fill in.
+ *
+ * Requests submitted one at a time are queued and run in batches: a bounded number of
+ * drain tasks on the executor each take up to batchSize requests off the queue, so
+ * under load there is one executor hand-off per batch rather than per request. Lists of
+ * requests submitted together are split into batches directly. The executor can be of
+ * platform threads or, where the JVM has them, virtual threads.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class EvaluationService implements AutoCloseable {
+
+	/**
+	 * Default number of requests run by one executor task.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 64;
+
+	private final ExecutorService executor;
+	private final boolean ownsExecutor;
+	private final int batchSize;
+
+	/**
+	 * Most drain tasks running or scheduled at once
+	 */
+	private final int maxDrainers;
+
+	private final ParseCache cache = new ParseCache(ParseCache.DEFAULT_MAX_ENTRIES, ParseCache.DEFAULT_MAX_BYTES);
+
+	private final ConcurrentLinkedQueue<Request> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger drainers = new AtomicInteger();
+
+	/**
+	 * Set by close; requests submitted after it are rejected
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * Initializes with an executor, which is not shut down by close.
+	 *
+	 * @param executor Executor to run requests on
+	 * @param batchSize Most requests run by one executor task
+	 * @param parallelism Most executor tasks draining the request queue at once
+	 * @throws IllegalArgumentException If batchSize or parallelism is less than 1
+	 */
+	public EvaluationService(ExecutorService executor, int batchSize, int parallelism) {
+		this(executor, false, batchSize, parallelism);
+	}
+
+	private EvaluationService(ExecutorService executor, boolean ownsExecutor, int batchSize, int parallelism) {
+		if (batchSize < 1 || parallelism < 1) {
+			throw new IllegalArgumentException("Batch size and parallelism must be at least 1: " +
+					batchSize + ", " + parallelism);
+		}
+		this.executor = executor;
+		this.ownsExecutor = ownsExecutor;
+		this.batchSize = batchSize;
+		this.maxDrainers = parallelism;
+	}
+
+	/**
+	 * Returns a service running on a pool of platform threads of its own, one per
+	 * available processor.
+	 *
+	 * @return New service
+	 */
+	public static EvaluationService platform() {
+		int threads = Runtime.getRuntime().availableProcessors();
+		return new EvaluationService(Executors.newFixedThreadPool(threads, daemonThreads()), true,
+				DEFAULT_BATCH_SIZE, threads);
+	}
+
+	/**
+	 * Returns a service running on virtual threads, one per task, if the JVM has them (Java
+	 * 21 and later); otherwise on a pool of platform threads as platform() does.
+	 *
+	 * @return New service
+	 */
+	public static EvaluationService virtual() {
+		int threads = Runtime.getRuntime().availableProcessors();
+		try {
+			// looked up reflectively, so this compiles and runs on JVMs without virtual threads
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return new EvaluationService((ExecutorService)factory.invoke(null), true, DEFAULT_BATCH_SIZE, threads);
+		} catch (ReflectiveOperationException | UnsupportedOperationException e) {
+			return platform();
+		}
+	}
+
+	/**
+	 * Compiles an expression, for sharing between requests. An expression compiled
+	 * before is returned from this service's parse cache.
+	 *
+	 * @param expr The expression
+	 * @return Compiled expression
+	 * @throws IllegalArgumentException If the expression is not well formed
+	 */
+	public CompiledExpression compile(String expr) {
+		return cache.get(expr);
+	}
+
+	/**
+	 * Returns this service's cache of compiled expressions, for its hit and miss counts.
+	 *
+	 * @return Parse cache
+	 */
+	public ParseCache cache() {
+		return cache;
+	}
+
+	/**
+	 * Evaluates on the calling thread.
+	 *
+	 * @param bindings Expression and values
+	 * @return Result of evaluation
+	 */
+	public float evaluate(Bindings bindings) {
+		return bindings.evaluate();
+	}
+
+	/**
+	 * Submits one evaluation, to be run in a batch with others submitted around the same
+	 * time. The bindings must not be changed until the result is complete.
+	 *
+	 * @param bindings Expression and values
+	 * @return Result, completed exceptionally if evaluation fails, or with a
+	 *         RejectedExecutionException if the service is closed
+	 */
+	public CompletableFuture<Float> submit(Bindings bindings) {
+		if (closed) {
+			return CompletableFuture.failedFuture(rejected());
+		}
+		Request r = new Request(bindings);
+		queue.add(r);
+		schedule();
+		return r.result;
+	}
+
+	/**
+	 * Submits a list of evaluations, run in batches of batchSize.
+	 *
+	 * @param requests Expressions and values
+	 * @return Results, in the order of the list, completed exceptionally if any
+	 *         evaluation fails, or with a RejectedExecutionException if the service is
+	 *         closed or its executor rejects a batch
+	 */
+	public CompletableFuture<float[]> submitAll(List<Bindings> requests) {
+		if (closed) {
+			return CompletableFuture.failedFuture(rejected());
+		}
+		int n = requests.size();
+		float[] results = new float[n];
+		CompletableFuture<?>[] batches = new CompletableFuture<?>[(n + batchSize - 1) / batchSize];
+		for (int b = 0; b < batches.length; b++) {
+			int from = b * batchSize, to = Math.min(from + batchSize, n);
+			try {
+				batches[b] = CompletableFuture.runAsync(() -> {
+					for (int i = from; i < to; i++) {
+						results[i] = requests.get(i).evaluate();
+					}
+				}, executor);
+			} catch (RejectedExecutionException e) {
+				return CompletableFuture.failedFuture(e);    // as submit reports it
+			}
+		}
+		return CompletableFuture.allOf(batches).thenApply(v -> results);
+	}
+
+	/**
+	 * Closes the service: requests submitted from now on are rejected, while requests
+	 * already submitted still run. The executor, if the service made it, is shut down
+	 * once the request queue has been drained.
+	 */
+	public void close() {
+		closed = true;
+		shutdownIfIdle();
+	}
+
+	/**
+	 * Starts a drain task, unless maxDrainers are already running.
+	 */
+	private void schedule() {
+		while (true) {
+			int d = drainers.get();
+			if (d >= maxDrainers) {
+				return;
+			}
+			if (drainers.compareAndSet(d, d + 1)) {
+				try {
+					executor.execute(this::drain);
+				} catch (RejectedExecutionException e) {
+					drainers.decrementAndGet();
+					for (Request r; (r = queue.poll()) != null; ) {
+						r.result.completeExceptionally(e);
+					}
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Runs up to batchSize queued requests, then hands over to a new drain task if more
+	 * are waiting, so one busy queue does not hold a thread indefinitely.
+	 */
+	private void drain() {
+		try {
+			Request r;
+			for (int n = 0; n < batchSize && (r = queue.poll()) != null; n++) {
+				try {
+					r.result.complete(r.bindings.evaluate());
+				} catch (RuntimeException e) {
+					r.result.completeExceptionally(e);
+				}
+			}
+		} finally {
+			drainers.decrementAndGet();
+			if (!queue.isEmpty()) {
+				schedule();
+			} else if (closed) {
+				shutdownIfIdle();
+			}
+		}
+	}
+
+	/**
+	 * Shuts down the executor, if the service made it, once no drain task is running and
+	 * no request is waiting.
+	 */
+	private void shutdownIfIdle() {
+		if (ownsExecutor && drainers.get() == 0 && queue.isEmpty()) {
+			executor.shutdown();
+		}
+	}
+
+	private static RejectedExecutionException rejected() {
+		return new RejectedExecutionException("Evaluation service is closed");
+	}
+
+	private static ThreadFactory daemonThreads() {
+		AtomicInteger count = new AtomicInteger();
+		return task -> {
+			Thread t = new Thread(task, "evaluation-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		};
+	}
+
+	/**
+	 * One queued evaluation.
+	 */
+	private static class Request {
+		final Bindings bindings;
+		final CompletableFuture<Float> result = new CompletableFuture<>();
+
+		Request(Bindings bindings) {
+			this.bindings = bindings;
+		}
+	}
+}
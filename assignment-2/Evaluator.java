@@ -1,7 +1,7 @@
 package app;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Scanner;
 
@@ -25,8 +25,7 @@ public class Evaluator {
 			System.out.print("Enter variable values file name, or hit return if no variables => ");
 			String fname = sc.nextLine();
 			if (fname.length() != 0) {
-				Scanner scfile = new Scanner(new File(fname));
-				Expression.loadVariableValues(scfile, vars, arrays);
+				ValueLoader.load(Paths.get(fname), vars, arrays);
 			}
 			System.out.println("Value of expression = " + Expression.evaluate(expr,vars,arrays));
 		}
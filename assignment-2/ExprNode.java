@@ -0,0 +1,143 @@
+package app;
+
+/**
+ * This class holds one node of a parsed expression tree: an integer constant, a simple
+ * variable, an array item, or one of the four binary operators. Variables and arrays
+ * are referred to by slot - their index in the scalar or array names of the
+ * CompiledExpression the tree belongs to - not by name. Nodes are never changed once built.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class ExprNode {
+
+	/**
+	 * Node kinds
+	 */
+	public static final int CONST = 0, VAR = 1, ARRAY = 2, ADD = 3, SUB = 4, MUL = 5, DIV = 6;
+
+	/**
+	 * Kind of node, one of the constants above
+	 */
+	public final int kind;
+
+	/**
+	 * Value, for a CONST node
+	 */
+	public final float value;
+
+	/**
+	 * Scalar slot for a VAR node, array slot for an ARRAY node
+	 */
+	public final int slot;
+
+	/**
+	 * Left operand of an operator, index expression of an ARRAY node
+	 */
+	public final ExprNode left;
+
+	/**
+	 * Right operand of an operator
+	 */
+	public final ExprNode right;
+
+	private ExprNode(int kind, float value, int slot, ExprNode left, ExprNode right) {
+		this.kind = kind;
+		this.value = value;
+		this.slot = slot;
+		this.left = left;
+		this.right = right;
+	}
+
+	/**
+	 * Returns a constant node.
+	 *
+	 * @param value Value of constant
+	 * @return New node
+	 */
+	public static ExprNode constant(float value) {
+		return new ExprNode(CONST, value, -1, null, null);
+	}
+
+	/**
+	 * Returns a simple variable node.
+	 *
+	 * @param slot Scalar slot of variable
+	 * @return New node
+	 */
+	public static ExprNode variable(int slot) {
+		return new ExprNode(VAR, 0, slot, null, null);
+	}
+
+	/**
+	 * Returns an array item node.
+	 *
+	 * @param slot Array slot
+	 * @param index Index expression
+	 * @return New node
+	 */
+	public static ExprNode array(int slot, ExprNode index) {
+		return new ExprNode(ARRAY, 0, slot, index, null);
+	}
+
+	/**
+	 * Returns an operator node.
+	 *
+	 * @param kind ADD, SUB, MUL or DIV
+	 * @param left Left operand
+	 * @param right Right operand
+	 * @return New node
+	 */
+	public static ExprNode operator(int kind, ExprNode left, ExprNode right) {
+		if (kind < ADD || kind > DIV) {
+			throw new IllegalArgumentException("Not an operator kind: " + kind);
+		}
+		return new ExprNode(kind, 0, -1, left, right);
+	}
+
+	/**
+	 * Tells whether this is an operator node.
+	 *
+	 * @return True for ADD, SUB, MUL and DIV
+	 */
+	public boolean isOperator() {
+		return kind >= ADD;
+	}
+
+	/**
+	 * Applies an operator to two operand values, in float arithmetic.
+	 *
+	 * @param kind ADD, SUB, MUL or DIV
+	 * @param first Left operand value
+	 * @param second Right operand value
+	 * @return Result
+	 */
+	public static float apply(int kind, float first, float second) {
+		switch (kind) {
+		case ADD:
+			return first + second;
+		case SUB:
+			return first - second;
+		case MUL:
+			return first * second;
+		default:
+			return first / second;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		switch (kind) {
+		case CONST:
+			return value == (int)value ? Integer.toString((int)value) : Float.toString(value);
+		case VAR:
+			return "$" + slot;
+		case ARRAY:
+			return "@" + slot + "[" + left + "]";
+		default:
+			return "(" + left + " " + "?+-*/".charAt(kind - ADD + 1) + " " + right + ")";
+		}
+	}
+}
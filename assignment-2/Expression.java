@@ -4,12 +4,16 @@ import java.io.*;
 import java.util.*;
 import java.util.regex.*;
 
-import structures.Stack;
-
 public class Expression {
 
 	public static String delims = " \t*+-/()[]";
-			
+	
+	/**
+	 * Compiled forms of the expressions seen by makeVariableLists and evaluate
+	 */
+	private static final ParseCache PARSE_CACHE = 
+			new ParseCache(ParseCache.DEFAULT_MAX_ENTRIES, ParseCache.DEFAULT_MAX_BYTES);
+	
     /**
      * Populates the vars list with simple variables, and arrays lists with arrays
      * in the expression. For every variable (simple or array), a SINGLE instance is created 
@@ -28,36 +32,40 @@ public class Expression {
     	 ** to this method - you just need to fill them in.
     	 **/
     	
-    	StringTokenizer token = new StringTokenizer(expr, delims);
+    	SymbolTable varSymbols = symbols(vars);
+    	SymbolTable arraySymbols = arraySymbols(arrays);
+    	CompiledExpression compiled = PARSE_CACHE.find(expr);
+    	if (compiled != null) {	// names in order of first appearance, as the lexer finds them
+    		for (String name : compiled.scalarNames) {
+    			if (varSymbols.intern(name) == vars.size()) {
+    				vars.add(new Variable(name));
+    			}
+    		}
+    		for (String name : compiled.arrayNames) {
+    			if (arraySymbols.intern(name) == arrays.size()) {
+    				arrays.add(new Array(name));
+    			}
+    		}
+    		System.out.println(vars);
+    		System.out.println(arrays);
+    		return;
+    	}
+    	ExpressionLexer lexer = ExpressionLexer.local();
+    	int count = lexer.tokenize(expr);
     	
-    	while (token.hasMoreTokens()) {
-    		String str = token.nextToken();
-    		int indexCheck = str.length() + expr.indexOf(str);
-    		
-    		if (indexCheck < expr.length()) {
-				if (expr.charAt(indexCheck) == '[') {
-					Array arr = new Array(str);
-					if (!(arrays.contains(arr))) {
-						arrays.add(arr);
-					}
-				} else if (isInteger(str)) {
-					continue;
-				} else {
-					Variable var = new Variable(str);
-					if (!(vars.contains(var))) {
-						vars.add(var);
-					}
-				}
-			} else if (indexCheck == expr.length()) {
-				if (isInteger(str)) {
-					continue;
-				} else {
-					Variable var = new Variable(str);
-					if (!(vars.contains(var))) {
-						vars.add(var);
-					}
-				}
-			}
+    	for (int t = 0; t < count; t++) {
+    		byte kind = lexer.kind(t);
+    		if (kind == ExpressionLexer.ARRAY_NAME) {
+    			int slot = lexer.intern(t, arraySymbols);
+    			if (slot == arrays.size()) {
+    				arrays.add(new Array(arraySymbols.name(slot)));
+    			}
+    		} else if (kind == ExpressionLexer.NAME) {
+    			int slot = lexer.intern(t, varSymbols);
+    			if (slot == vars.size()) {
+    				vars.add(new Variable(varSymbols.name(slot)));
+    			}
+    		}
     	}
     	
     	System.out.println(vars);
@@ -75,37 +83,11 @@ public class Expression {
     public static void 
     loadVariableValues(Scanner sc, ArrayList<Variable> vars, ArrayList<Array> arrays) 
     throws IOException {
-        while (sc.hasNextLine()) {
-            StringTokenizer st = new StringTokenizer(sc.nextLine().trim());
-            int numTokens = st.countTokens();
-            String tok = st.nextToken();
-            Variable var = new Variable(tok);
-            Array arr = new Array(tok);
-            int vari = vars.indexOf(var);
-            int arri = arrays.indexOf(arr);
-            if (vari == -1 && arri == -1) {
-            	continue;
-            }
-            int num = Integer.parseInt(st.nextToken());
-            if (numTokens == 2) { // scalar symbol
-                vars.get(vari).value = num;
-            } else { // array symbol
-            	arr = arrays.get(arri);
-            	arr.values = new int[num];
-                // following are (index,val) pairs
-                while (st.hasMoreTokens()) {
-                    tok = st.nextToken();
-                    StringTokenizer stt = new StringTokenizer(tok," (,)");
-                    int index = Integer.parseInt(stt.nextToken());
-                    int val = Integer.parseInt(stt.nextToken());
-                    arr.values[index] = val;              
-                }
-            }
-        }
+    	ValueLoader.load(sc, vars, arrays);
     }
     
     /**
-     * Evaluates the expression.
+     * Evaluates the expression, using this thread's evaluation context (see EvalContext).
      * 
      * @param vars The variables array list, with values for all variables in the expression
      * @param arrays The arrays array list, with values for all array items
@@ -113,133 +95,166 @@ public class Expression {
      */
     public static float 
     evaluate(String expr, ArrayList<Variable> vars, ArrayList<Array> arrays) {
-    	/** COMPLETE THIS METHOD **/
-    	// following line just a placeholder for compilation
-
-    	Stack<Float> value = new Stack<>();
-    	Stack<String> operator = new Stack<>();
-    	StringTokenizer str = new StringTokenizer(expr, delims, true);
-    	while(str.hasMoreTokens()) {
-    		String current = str.nextToken();
-    		if(current.equals(" ") || current.equals("\t")) {
-    		} 
-    		else if(isInteger(current)) {//adds constant to stack
-    			value.push(Float.parseFloat(current));
-    			continue;
-    		} else if(isVariable(vars, current) != -1) {
-    			value.push((float)vars.get(isVariable(vars,current)).value);
-    		} else if(current.equals("(")) {
-    			operator.push("(");
-    		} else if(current.equals(")")){
-    			while(operator.peek() != "("){
-    				float second = value.pop();
-    				float first = value.pop();
-    				String oper = operator.pop();
-    				value.push(checkSign(second, first, oper));
+    	return evaluate(expr, vars, arrays, EvalContext.local());
+    }
+    
+    /**
+     * Evaluates the expression, using the stacks and tables of an evaluation context, which
+     * are reused from call to call so that evaluation does not allocate. An expression
+     * seen before is evaluated from its cached compiled form (see parseCache), without
+     * being tokenized again.
+     * 
+     * @param vars The variables array list, with values for all variables in the expression
+     * @param arrays The arrays array list, with values for all array items
+     * @param context Evaluation context, not in use by another thread
+     * @return Result of evaluation
+     */
+    public static float 
+    evaluate(String expr, ArrayList<Variable> vars, ArrayList<Array> arrays, EvalContext context) {
+    	CompiledExpression compiled = PARSE_CACHE.find(expr);
+    	if (compiled != null && context.bind(compiled, vars, arrays)) {
+    		return compiled.evaluate(context.scalars, context.items, 
+    				context.stack(Math.max(compiled.stackSize(), 1)));
+    	}
+    	SymbolTable varSymbols = context.varSymbols(vars);
+    	SymbolTable arraySymbols = context.arraySymbols(arrays);
+    	ExpressionLexer lexer = context.lexer;
+    	context.reset();
+    	int count = lexer.tokenize(expr);
+    	for (int t = 0; t < count; t++) {
+    		byte kind = lexer.kind(t);
+    		int slot;
+    		if(kind == ExpressionLexer.CONST) {//adds constant to stack
+    			context.pushValue(lexer.value(t));
+    		} else if(kind == ExpressionLexer.NAME) {
+    			if((slot = lexer.find(t, varSymbols)) != -1) {
+    				context.pushValue((float)vars.get(slot).value);
+    			}
+    		} else if(kind == ExpressionLexer.LPAREN) {
+    			context.pushOp(EvalContext.PAREN, 0);
+    		} else if(kind == ExpressionLexer.RPAREN){
+    			while(context.peekOp() != EvalContext.PAREN){
+    				applyTop(context);
     			}
-    			operator.pop();
-    		} else if(current.equals("[")){
-    			operator.push("[");
-    		} else if(isArray(arrays, current) != -1){
-    			operator.push(current);
-    		} else if(current.equals("]")) {
-    			while(operator.peek() != "["){
-    				float second = value.pop();
-    				float first = value.pop();
-    				String oper = operator.pop();
-    				value.push(checkSign(second, first, oper));
+    			context.popOp();
+    		} else if(kind == ExpressionLexer.ARRAY_NAME){
+    			context.pushOp(EvalContext.BRACKET, lexer.find(t, arraySymbols));
+    			t++;	// the '[' that made this an array name
+    		} else if(kind == ExpressionLexer.LBRACKET) {	// no array name, so no value
+    			context.pushOp(EvalContext.BRACKET, -1);
+    		} else if(kind == ExpressionLexer.RBRACKET) {
+    			while(context.peekOp() != EvalContext.BRACKET){
+    				applyTop(context);
     			}
-    			operator.pop();
-    			String ArrayName = operator.pop();
-    			float ArrayIndex = value.pop();
-    			value.push(getValue(arrays, ArrayIndex, ArrayName));
-    		} else if(current.equals("+") || current.equals("-") || current.equals("*") || current.equals("/")){
-    			while(!(operator.isEmpty()) && ifNeedPemda(current, operator.peek())){
-    				float second = value.pop();
-    				float first = value.pop();
-    				String oper = operator.pop();
-    				value.push(checkSign(second, first, oper));
-			}
-    			operator.push(current);
+    			slot = context.popBracket();
+    			float ArrayIndex = context.popValue();
+    			context.pushValue(getValue(arrays, slot, ArrayIndex));
+    		} else {
+    			while(context.hasOps() && ifNeedPemda(kind, context.peekOp())){
+    				applyTop(context);
+    			}
+    			context.pushOp(kind, 0);
     		}
     	}
-    	while(operator.isEmpty() != true) {
-    		float second = value.pop();
-			float first = value.pop();
-			String oper = operator.pop();
-			value.push(checkSign(second, first, oper));
-			
+    	while(context.hasOps()) {
+    		applyTop(context);
     	}
-    	return value.pop();
+    	return context.popValue();
     }
     
-    private static float checkSign(float second, float first, String oper) {
+    /**
+     * Compiles the expression once, for evaluating it many times. Variables and arrays
+     * are bound to slots, in order of first appearance, and the compiled form evaluates
+     * on primitive arrays with no string handling or name lookups.
+     * 
+     * @param expr The expression
+     * @return Compiled expression
+     * @throws IllegalArgumentException If the expression is not well formed
+     */
+    public static CompiledExpression 
+    compile(String expr) {
+    	return ExpressionParser.parse(expr);
+    }
+    
+    /**
+     * Returns the cache of compiled expressions used by makeVariableLists and evaluate,
+     * for its hit and miss counts.
+     * 
+     * @return Parse cache
+     */
+    public static ParseCache 
+    parseCache() {
+    	return PARSE_CACHE;
+    }
+    
+    /**
+     * Pops the top operator and its two operands, and pushes the result.
+     */
+    private static void applyTop(EvalContext context) {
+    	float second = context.popValue();
+    	float first = context.popValue();
+    	context.pushValue(checkSign(second, first, context.popOp()));
+    }
+    
+    private static float checkSign(float second, float first, byte oper) {
     	float result = 0;
     	switch(oper){
-		case "+": 
+		case ExprNode.ADD: 
 			result = first + second;
 			break;
-		case "-":
+		case ExprNode.SUB:
 			result = first - second;
 			break;
-		case "*":
+		case ExprNode.MUL:
 			result = first * second;
 			break;
-		case "/":
+		case ExprNode.DIV:
 			result = first / second;
 			break;
     	}
     	return result;
     }
     
-    private static boolean isInteger(String number){
-        try
-        {
-           Integer.parseInt(number);
-           return true;
-        }
-        catch(Exception e)
-        {
-           return false;
-        }
-     }
-     private static boolean ifNeedPemda(String current, String top){
-     	if((current.equals("*") || current.equals("/")) && (top.equals("+") || top.equals("-"))) {
+     private static boolean ifNeedPemda(byte current, byte top){
+     	if((current == ExprNode.MUL || current == ExprNode.DIV) && (top == ExprNode.ADD || top == ExprNode.SUB)) {
      		return false;
-     	}if(top.equals("(")) {
+     	}if(top == EvalContext.PAREN) {
      		return false;
-     	}if(top.equals("[")){
+     	}if(top == EvalContext.BRACKET){
      		return false;
      	}
      	return true;
      	}
      
-     private static int isVariable(ArrayList<Variable> vars, String name){
-     	for(int i = 0; i < vars.size(); i++) {
-     		if(vars.get(i).name.equals(name)) {
-     			return i;
-     		}
+     private static float getValue(ArrayList<Array> arrays, int slot, float index) {
+     	int firstIndex= (int) index;
+     	if (slot == -1) {
+     		return -1;
      	}
-     	return -1;
-     		
+     	return (float)arrays.get(slot).get(firstIndex);
      }
-     private static int isArray(ArrayList<Array> arrays, String name){
-     	for (int i = 0; i < arrays.size(); i++) {
-     		if(arrays.get(i).name.equals(name)) {
-     			return i;
-     		}
+     
+     /**
+      * Returns a symbol table of the variable names, with each name in the slot of its
+      * position in the list.
+      */
+     private static SymbolTable symbols(ArrayList<Variable> vars) {
+     	SymbolTable table = new SymbolTable(vars.size());
+     	for (Variable var : vars) {
+     		table.intern(var.name);
      	}
-     	return -1;
+     	return table;
      }
-     private static float getValue(ArrayList<Array> arrays, float index, String name) {
-     	int firstIndex= (int) index;
-     	float result = -1;
-     	for(int i = 0; i < arrays.size(); i++){
-     		if(arrays.get(i).name.equals(name)){
-     			Array array1 = arrays.get(i);
-     			return (float)array1.values[firstIndex];
-     		}
+     
+     /**
+      * Returns a symbol table of the array names, with each name in the slot of its
+      * position in the list.
+      */
+     private static SymbolTable arraySymbols(ArrayList<Array> arrays) {
+     	SymbolTable table = new SymbolTable(arrays.size());
+     	for (Array arr : arrays) {
+     		table.intern(arr.name);
      	}
-     	return result;
+     	return table;
      }
 }
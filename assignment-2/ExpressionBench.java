@@ -0,0 +1,102 @@
+package app;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * This class benchmarks expression evaluation, and reports time and heap allocation
+ * per evaluation. Allocation is read from the current thread's allocation counter, as
+ * JMH's gc profiler does, so steady-state evaluation should show 0 bytes.
+ * <pre>
+ *     java app.ExpressionBench [terms [millis]]
+ * </pre>
+ * terms is the number of terms in the generated expression [1000], and millis the
+ * length of each measured iteration, in milliseconds [500].
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class ExpressionBench {
+
+	/**
+	 * Results are folded in here so the JIT cannot drop the benchmarked work.
+	 */
+	static volatile float sink;
+
+	public static void main(String[] args) {
+		int terms = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		long millis = args.length > 1 ? Long.parseLong(args[1]) : 500;
+
+		StringBuilder sb = new StringBuilder("a");
+		for (int i = 1; i < terms; i++) {
+			sb.append(i % 2 == 0 ? " + " : " - ").append("(b*").append(i % 7).append(" - A[c/")
+				.append(i % 3 + 1).append("])*").append(i % 5);
+		}
+		String expr = sb.toString();
+		ArrayList<Variable> vars = new ArrayList<>();
+		ArrayList<Array> arrays = new ArrayList<>();
+		for (String name : new String[] { "a", "b", "c" }) {
+			Variable v = new Variable(name);
+			v.value = name.charAt(0);
+			vars.add(v);
+		}
+		Array a = new Array("A");
+		a.values = new int[100];
+		for (int i = 0; i < a.values.length; i++) {
+			a.values[i] = i * 3;
+		}
+		arrays.add(a);
+
+		EvalContext context = new EvalContext();
+		CompiledExpression compiled = Expression.compile(expr);
+		int[] scalars = new int[compiled.scalarNames.length];
+		for (int i = 0; i < scalars.length; i++) {
+			scalars[i] = compiled.scalarNames[i].charAt(0);
+		}
+		int[][] items = { a.values };
+
+		System.out.println("expression of " + expr.length() + " characters");
+		report("evaluate", () -> sink = Expression.evaluate(expr, vars, arrays), millis);
+		report("evaluate(context)", () -> sink = Expression.evaluate(expr, vars, arrays, context), millis);
+		System.out.println(Expression.parseCache());
+		report("compiled", () -> sink = compiled.evaluate(scalars, items), millis);
+		CompiledExpression optimized = ExpressionOptimizer.optimize(compiled);
+		System.out.println("optimizer removed " + (compiled.operations() - optimized.operations()) +
+				" of " + compiled.operations() + " operations");
+		report("optimized", () -> sink = optimized.evaluate(scalars, items), millis);
+	}
+
+	/**
+	 * Runs one warmup iteration and three measured ones, and prints the figures of the
+	 * last.
+	 */
+	static void report(String name, Runnable op, long millis) {
+		long minNanos = millis * 1000000;
+		double ns = 0, bytes = 0;
+		for (int i = 0; i < 4; i++) {
+			long ops = 0;
+			long allocated = allocatedBytes();
+			long start = System.nanoTime(), elapsed;
+			do {
+				op.run();
+				ops++;
+				elapsed = System.nanoTime() - start;
+			} while (elapsed < minNanos);
+			ns = (double)elapsed / ops;
+			bytes = (double)(allocatedBytes() - allocated) / ops;
+		}
+		System.out.println(String.format(Locale.ROOT, "%-20s %12.1f ns/op %10.1f B/op", name, ns, bytes));
+	}
+
+	/**
+	 * Returns bytes allocated so far by the current thread, or 0 if the JVM does not say.
+	 */
+	static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+}
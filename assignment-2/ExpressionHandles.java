@@ -0,0 +1,98 @@
+package app;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * This class turns an expression tree into a tree of method handles of type
+ * (int[] scalars, int[][] arrays) float - one handle per node, combined with the
+ * MethodHandles combinators - which the JIT compiles into straight-line code with
+ * no instruction dispatch, as it would a hand-written method for the expression.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+class ExpressionHandles {
+
+	/**
+	 * Largest program, in instructions, that is turned into handles. Bigger trees take
+	 * long to build and are too deep to be inlined anyway.
+	 */
+	static final int MAX_SIZE = 256;
+
+	private static final MethodType TYPE = MethodType.methodType(float.class, int[].class, int[][].class);
+
+	private static final MethodHandle SCALAR = MethodHandles.arrayElementGetter(int[].class);
+	private static final MethodHandle ROW = MethodHandles.arrayElementGetter(int[][].class);
+	private static final MethodHandle[] OPERATORS = new MethodHandle[ExprNode.DIV + 1];
+
+	static {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		MethodType binary = MethodType.methodType(float.class, float.class, float.class);
+		try {
+			OPERATORS[ExprNode.ADD] = lookup.findStatic(ExpressionHandles.class, "add", binary);
+			OPERATORS[ExprNode.SUB] = lookup.findStatic(ExpressionHandles.class, "sub", binary);
+			OPERATORS[ExprNode.MUL] = lookup.findStatic(ExpressionHandles.class, "mul", binary);
+			OPERATORS[ExprNode.DIV] = lookup.findStatic(ExpressionHandles.class, "div", binary);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	// prevent instantiation
+	private ExpressionHandles() { }
+
+	/**
+	 * Returns a handle of type (int[], int[][]) float that evaluates an expression tree.
+	 *
+	 * @param node Root of tree
+	 * @return Method handle
+	 */
+	static MethodHandle compile(ExprNode node) {
+		switch (node.kind) {
+		case ExprNode.CONST:
+			return MethodHandles.dropArguments(MethodHandles.constant(float.class, node.value), 0,
+					int[].class, int[][].class);
+		case ExprNode.VAR: {
+			// (int[] s) -> (float)s[slot], then ignore the arrays argument
+			MethodHandle get = MethodHandles.insertArguments(SCALAR, 1, node.slot);
+			get = MethodHandles.explicitCastArguments(get, MethodType.methodType(float.class, int[].class));
+			return MethodHandles.dropArguments(get, 1, int[][].class);
+		}
+		case ExprNode.ARRAY: {
+			// (int[][] a, int i) -> a[slot][i]
+			MethodHandle item = MethodHandles.filterArguments(SCALAR, 0, MethodHandles.insertArguments(ROW, 1, node.slot));
+			item = MethodHandles.explicitCastArguments(item, MethodType.methodType(float.class, int[][].class, int.class));
+			// index as an int, truncated as in Expression.evaluate
+			MethodHandle index = MethodHandles.explicitCastArguments(compile(node.left),
+					MethodType.methodType(int.class, int[].class, int[][].class));
+			// (int[][] a, int[] s, int[][] a) -> a[slot][index(s, a)]
+			MethodHandle h = MethodHandles.collectArguments(item, 1, index);
+			return MethodHandles.permuteArguments(h, TYPE, 1, 0, 1);
+		}
+		default: {
+			// (s, a) -> op(left(s, a), right(s, a))
+			MethodHandle h = MethodHandles.collectArguments(OPERATORS[node.kind], 0, compile(node.left));
+			h = MethodHandles.collectArguments(h, 2, compile(node.right));
+			return MethodHandles.permuteArguments(h, TYPE, 0, 1, 0, 1);
+		}
+		}
+	}
+
+	private static float add(float first, float second) {
+		return first + second;
+	}
+
+	private static float sub(float first, float second) {
+		return first - second;
+	}
+
+	private static float mul(float first, float second) {
+		return first * second;
+	}
+
+	private static float div(float first, float second) {
+		return first / second;
+	}
+}
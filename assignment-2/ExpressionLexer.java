@@ -0,0 +1,221 @@
+package app;
+
+import java.util.Arrays;
+
+/**
+ * This class splits an expression into tokens in a single pass over its characters.
+ * Tokens are recorded in primitive arrays - kind, start and end offsets, and the value of
+ * each integer constant - that are kept and reused from one expression to the next, so
+ * a lexer that has grown to fit its longest expression allocates nothing more.
+ *
+ * Tokens are as Expression has always read them: blanks (spaces and tabs) separate
+ * tokens and are skipped; each of "*+-/()[]" is a token of its own; any other run of
+ * characters is a constant if it is all digits, otherwise a name. A name followed,
+ * after any blanks, by '[' is an array name.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class ExpressionLexer {
+
+	/**
+	 * Token kinds. The four operators have the ExprNode kinds of their nodes.
+	 */
+	public static final byte CONST = ExprNode.CONST, NAME = ExprNode.VAR, ARRAY_NAME = ExprNode.ARRAY,
+			ADD = ExprNode.ADD, SUB = ExprNode.SUB, MUL = ExprNode.MUL, DIV = ExprNode.DIV,
+			LPAREN = 7, RPAREN = 8, LBRACKET = 9, RBRACKET = 10;
+
+	/**
+	 * Lexers for the static methods of Expression, one per thread
+	 */
+	private static final ThreadLocal<ExpressionLexer> LEXERS = ThreadLocal.withInitial(ExpressionLexer::new);
+
+	private CharSequence text;
+	private byte[] kinds = new byte[64];
+	private int[] starts = new int[64];
+	private int[] ends = new int[64];
+	private float[] values = new float[64];
+	private int count;
+
+	/**
+	 * Splits an expression into tokens, replacing the tokens of the previous one.
+	 *
+	 * @param expr The expression
+	 * @return Number of tokens
+	 */
+	public int tokenize(CharSequence expr) {
+		text = expr;
+		count = 0;
+		int n = expr.length();
+		int i = 0;
+		while (i < n) {
+			char ch = expr.charAt(i);
+			byte kind = symbolKind(ch);
+			if (kind == NAME) {
+				int start = i;
+				boolean digits = true;
+				long value = 0;
+				while (i < n && symbolKind(ch = expr.charAt(i)) == NAME) {
+					if (ch >= '0' && ch <= '9') {
+						value = value * 10 + (ch - '0');    // used only when at most 9 digits
+					} else {
+						digits = false;
+					}
+					i++;
+				}
+				if (digits) {
+					add(CONST, start, i, i - start <= 9 ? value : Float.parseFloat(expr.subSequence(start, i).toString()));
+				} else {
+					int next = i;
+					while (next < n && ((ch = expr.charAt(next)) == ' ' || ch == '\t')) {
+						next++;
+					}
+					add(next < n && expr.charAt(next) == '[' ? ARRAY_NAME : NAME, start, i, 0);
+				}
+			} else {
+				if (kind != -1) {
+					add(kind, i, i + 1, 0);
+				}
+				i++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns this thread's shared lexer. Its tokens are good until the next tokenize call
+	 * on the same thread.
+	 */
+	static ExpressionLexer local() {
+		return LEXERS.get();
+	}
+
+	/**
+	 * Returns the number of tokens.
+	 *
+	 * @return Number of tokens
+	 */
+	public int count() {
+		return count;
+	}
+
+	/**
+	 * Returns the kind of a token.
+	 *
+	 * @param i Token index
+	 * @return Kind, one of the constants above
+	 */
+	public byte kind(int i) {
+		return kinds[i];
+	}
+
+	/**
+	 * Returns the offset of the first character of a token.
+	 *
+	 * @param i Token index
+	 * @return Start offset
+	 */
+	public int start(int i) {
+		return starts[i];
+	}
+
+	/**
+	 * Returns the offset after the last character of a token.
+	 *
+	 * @param i Token index
+	 * @return End offset
+	 */
+	public int end(int i) {
+		return ends[i];
+	}
+
+	/**
+	 * Returns the value of a CONST token.
+	 *
+	 * @param i Token index
+	 * @return Value
+	 */
+	public float value(int i) {
+		return values[i];
+	}
+
+	/**
+	 * Returns the text of a token, as a new String.
+	 *
+	 * @param i Token index
+	 * @return Token text
+	 */
+	public String text(int i) {
+		return text.subSequence(starts[i], ends[i]).toString();
+	}
+
+	/**
+	 * Returns the slot of a NAME or ARRAY_NAME token in a symbol table, without creating
+	 * a String for it.
+	 *
+	 * @param i Token index
+	 * @param symbols Symbol table
+	 * @return Slot, or -1 if the name is not in the table
+	 */
+	public int find(int i, SymbolTable symbols) {
+		return symbols.find(text, starts[i], ends[i]);
+	}
+
+	/**
+	 * Returns the slot of a NAME or ARRAY_NAME token in a symbol table, adding the name
+	 * to the table if it is not there.
+	 *
+	 * @param i Token index
+	 * @param symbols Symbol table
+	 * @return Slot
+	 */
+	public int intern(int i, SymbolTable symbols) {
+		int slot = symbols.find(text, starts[i], ends[i]);
+		return slot >= 0 ? slot : symbols.intern(text(i));
+	}
+
+	/**
+	 * Returns the token kind of a single character: one of the operator and bracket
+	 * kinds, -1 for a blank, NAME for any other character.
+	 */
+	private static byte symbolKind(char ch) {
+		switch (ch) {
+		case ' ':
+		case '\t':
+			return -1;
+		case '+':
+			return ADD;
+		case '-':
+			return SUB;
+		case '*':
+			return MUL;
+		case '/':
+			return DIV;
+		case '(':
+			return LPAREN;
+		case ')':
+			return RPAREN;
+		case '[':
+			return LBRACKET;
+		case ']':
+			return RBRACKET;
+		default:
+			return NAME;
+		}
+	}
+
+	private void add(byte kind, int start, int end, float value) {
+		if (count == kinds.length) {
+			int cap = count * 2;
+			kinds = Arrays.copyOf(kinds, cap);
+			starts = Arrays.copyOf(starts, cap);
+			ends = Arrays.copyOf(ends, cap);
+			values = Arrays.copyOf(values, cap);
+		}
+		kinds[count] = kind;
+		starts[count] = start;
+		ends[count] = end;
+		values[count] = value;
+		count++;
+	}
+}
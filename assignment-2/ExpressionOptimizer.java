@@ -0,0 +1,382 @@
+package app;
+
+import java.util.Arrays;
+
+/**
+ * This class optimizes compiled expressions, so that each evaluation does less work:
+ * <ul>
+ * <li>operators on constants are folded into a constant;</li>
+ * <li>identical subexpressions - array items with the same index expression included -
+ * are computed once, saved in a temporary slot, and loaded at each further use;</li>
+ * <li>the identities x*1 = 1*x = x/1 = x, x+0 = 0+x = x-0 = x and x-x = 0 are
+ * applied.</li>
+ * </ul>
+ * The optimized expression gives exactly the results of the original, to the bit, in
+ * float arithmetic: constants are folded with the same float operations evaluation would
+ * do; + and * are commutative in float, so a+b and b+a are one subexpression; x+0 is
+ * replaced only where x cannot be -0, and x-x only where x is certain to be finite
+ * (it is NaN otherwise) and reads no array items, whose index checks would be lost.
+ * Nothing is reassociated, since (a+b)+c and a+(b+c) can round differently.
+ *
+ * The number of operations removed is the difference of operations() before and after.
+ * The pass is iterative throughout, so arbitrarily long expressions can be optimized.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class ExpressionOptimizer {
+
+	/**
+	 * Bound on magnitude below which a value is certainly finite, with room to spare for
+	 * rounding
+	 */
+	private static final double FINITE = 1e37;
+
+	/**
+	 * Bound on magnitude of a variable or array item, which are ints
+	 */
+	private static final double INT_BOUND = 2147483648.0;
+
+	/**
+	 * DAG nodes, by id: kind, argument (constant bits for CONST, slot for VAR and ARRAY),
+	 * left and right child ids (index for ARRAY), -1 where there is none
+	 */
+	private int[] kinds, args, lefts, rights;
+
+	/**
+	 * Bound on magnitude of each node's value, infinite if none is known
+	 */
+	private double[] bounds;
+
+	/**
+	 * Whether each node's value could be -0, and whether it reads an array item
+	 */
+	private boolean[] negZero, readsArray;
+
+	private int size;
+
+	/**
+	 * Hash table of node id + 1, 0 where free, for finding an existing identical node
+	 */
+	private int[] table;
+
+	private ExpressionOptimizer(int capacity) {
+		int cap = Math.max(capacity, 16);
+		kinds = new int[cap];
+		args = new int[cap];
+		lefts = new int[cap];
+		rights = new int[cap];
+		bounds = new double[cap];
+		negZero = new boolean[cap];
+		readsArray = new boolean[cap];
+		int tableCap = 32;
+		while (tableCap < cap * 2L && tableCap < (1 << 30)) {
+			tableCap <<= 1;
+		}
+		table = new int[tableCap];
+	}
+
+	/**
+	 * Optimizes a compiled expression. Slots are unchanged, so the result is evaluated
+	 * with the same scalar and array values as the original.
+	 *
+	 * @param expr Compiled expression
+	 * @return Optimized expression, with the same source text
+	 */
+	public static CompiledExpression optimize(CompiledExpression expr) {
+		ExpressionOptimizer opt = new ExpressionOptimizer(expr.code.length);
+		int root = opt.build(expr);
+		return opt.emit(expr, root);
+	}
+
+	/**
+	 * Builds the folded and simplified DAG of a program, and returns the root id.
+	 */
+	private int build(CompiledExpression expr) {
+		int[] stack = new int[Math.max(expr.maxDepth, 1)];
+		int[] saved = new int[expr.temps];
+		int sp = 0;
+		for (int ins : expr.code) {
+			int kind = ins & 0xFF;
+			int arg = ins >>> 8;
+			switch (kind) {
+			case ExprNode.CONST:
+				stack[sp++] = constant(expr.constants[arg]);
+				break;
+			case ExprNode.VAR:
+				stack[sp++] = node(ExprNode.VAR, arg, -1, -1);
+				break;
+			case ExprNode.ARRAY:
+				stack[sp - 1] = node(ExprNode.ARRAY, arg, stack[sp - 1], -1);
+				break;
+			case CompiledExpression.LOAD:
+				stack[sp++] = saved[arg];
+				break;
+			case CompiledExpression.STORE:
+				saved[arg] = stack[sp - 1];
+				break;
+			default:
+				sp--;
+				stack[sp - 1] = operator(kind, stack[sp - 1], stack[sp]);
+			}
+		}
+		return stack[0];
+	}
+
+	/**
+	 * Returns the node for an operator on two nodes, folded or simplified if it can be.
+	 */
+	private int operator(int kind, int x, int y) {
+		boolean constX = kinds[x] == ExprNode.CONST, constY = kinds[y] == ExprNode.CONST;
+		if (constX && constY) {
+			return constant(ExprNode.apply(kind, value(x), value(y)));
+		}
+		switch (kind) {
+		case ExprNode.ADD:
+			// x + -0 is x for every x; x + 0 is x unless x is -0, when it is 0
+			if (constY && (isNegativeZero(y) || isZero(y) && !negZero[x])) {
+				return x;
+			}
+			if (constX && (isNegativeZero(x) || isZero(x) && !negZero[y])) {
+				return y;
+			}
+			break;
+		case ExprNode.SUB:
+			// x - 0 is x for every x; x - -0 is x + 0
+			if (constY && (isZero(y) || isNegativeZero(y) && !negZero[x])) {
+				return x;
+			}
+			if (x == y && bounds[x] < FINITE && !readsArray[x]) {
+				return constant(0);
+			}
+			break;
+		case ExprNode.MUL:
+			if (constY && value(y) == 1) {
+				return x;
+			}
+			if (constX && value(x) == 1) {
+				return y;
+			}
+			break;
+		default:
+			if (constY && value(y) == 1) {
+				return x;
+			}
+		}
+		if ((kind == ExprNode.ADD || kind == ExprNode.MUL) && x > y) {
+			int t = x;    // commutative: one order for both
+			x = y;
+			y = t;
+		}
+		return node(kind, 0, x, y);
+	}
+
+	private int constant(float value) {
+		return node(ExprNode.CONST, Float.floatToIntBits(value), -1, -1);
+	}
+
+	private float value(int id) {
+		return Float.intBitsToFloat(args[id]);
+	}
+
+	private boolean isZero(int id) {
+		return args[id] == 0;
+	}
+
+	private boolean isNegativeZero(int id) {
+		return args[id] == 0x80000000;
+	}
+
+	/**
+	 * Returns the id of the node with these fields, adding it if there is none.
+	 */
+	private int node(int kind, int arg, int left, int right) {
+		int mask = table.length - 1;
+		int i = hash(kind, arg, left, right) & mask;
+		for (int s; (s = table[i]) != 0; i = (i + 1) & mask) {
+			int id = s - 1;
+			if (kinds[id] == kind && args[id] == arg && lefts[id] == left && rights[id] == right) {
+				return id;
+			}
+		}
+		if (size == kinds.length) {
+			int cap = size * 2;
+			kinds = Arrays.copyOf(kinds, cap);
+			args = Arrays.copyOf(args, cap);
+			lefts = Arrays.copyOf(lefts, cap);
+			rights = Arrays.copyOf(rights, cap);
+			bounds = Arrays.copyOf(bounds, cap);
+			negZero = Arrays.copyOf(negZero, cap);
+			readsArray = Arrays.copyOf(readsArray, cap);
+		}
+		int id = size++;
+		kinds[id] = kind;
+		args[id] = arg;
+		lefts[id] = left;
+		rights[id] = right;
+		switch (kind) {
+		case ExprNode.CONST: {
+			float v = Float.intBitsToFloat(arg);
+			bounds[id] = Float.isNaN(v) ? Double.POSITIVE_INFINITY : Math.abs(v);
+			negZero[id] = arg == 0x80000000;
+			break;
+		}
+		case ExprNode.VAR:
+			bounds[id] = INT_BOUND;
+			break;
+		case ExprNode.ARRAY:
+			bounds[id] = INT_BOUND;
+			readsArray[id] = true;
+			break;
+		default:
+			bounds[id] = bound(kind, left, right);
+			negZero[id] = kind == ExprNode.ADD ? negZero[left] && negZero[right] :
+				kind == ExprNode.SUB ? negZero[left] : true;
+			readsArray[id] = readsArray[left] || readsArray[right];
+		}
+		table[i] = id + 1;
+		if (size * 2 > table.length) {
+			rehash();
+		}
+		return id;
+	}
+
+	/**
+	 * Returns a bound on the magnitude of an operator's value, from its operands' bounds.
+	 */
+	private double bound(int kind, int left, int right) {
+		switch (kind) {
+		case ExprNode.ADD:
+		case ExprNode.SUB:
+			return bounds[left] + bounds[right];
+		case ExprNode.MUL:
+			return bounds[left] * bounds[right];
+		default:
+			if (kinds[right] == ExprNode.CONST && value(right) != 0) {
+				return bounds[left] / Math.abs(value(right));
+			}
+			return Double.POSITIVE_INFINITY;
+		}
+	}
+
+	private void rehash() {
+		table = new int[table.length * 2];
+		int mask = table.length - 1;
+		for (int id = 0; id < size; id++) {
+			int i = hash(kinds[id], args[id], lefts[id], rights[id]) & mask;
+			while (table[i] != 0) {
+				i = (i + 1) & mask;
+			}
+			table[i] = id + 1;
+		}
+	}
+
+	private static int hash(int kind, int arg, int left, int right) {
+		int h = ((kind * 31 + arg) * 31 + left) * 31 + right;
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Emits the postfix program of the DAG under root. An operator or array node used
+	 * more than once is saved to a temporary slot the first time it is computed, and
+	 * loaded from there after that.
+	 */
+	private CompiledExpression emit(CompiledExpression expr, int root) {
+		// count uses of each node reachable from root, visiting each node once
+		int[] uses = new int[size];
+		int[] work = new int[16];
+		int top = 0;
+		work[top++] = root;
+		uses[root] = 1;
+		while (top > 0) {
+			int n = work[--top];
+			for (int k = 0; k < 2; k++) {
+				int c = k == 0 ? lefts[n] : rights[n];
+				if (c >= 0 && uses[c]++ == 0) {
+					if (top == work.length) {
+						work = Arrays.copyOf(work, top * 2);
+					}
+					work[top++] = c;
+				}
+			}
+		}
+
+		int[] temp = new int[size];
+		int[] constIndex = new int[size];
+		Arrays.fill(temp, -1);
+		Arrays.fill(constIndex, -1);
+		boolean[] emitted = new boolean[size];
+		int temps = 0;
+		int[] code = new int[16];
+		int length = 0;
+		float[] constants = new float[8];
+		int constantCount = 0;
+		int depth = 0, maxDepth = 0;
+
+		// pre-order entries are ids, post-order entries ~id
+		top = 0;
+		work[top++] = root;
+		while (top > 0) {
+			int e = work[--top];
+			int ins;
+			if (e >= 0) {
+				int n = e;
+				int kind = kinds[n];
+				if (emitted[n]) {
+					ins = (temp[n] << 8) | CompiledExpression.LOAD;
+					depth++;
+				} else if (kind == ExprNode.CONST) {
+					if (constIndex[n] < 0) {
+						if (constantCount == constants.length) {
+							constants = Arrays.copyOf(constants, constantCount * 2);
+						}
+						constants[constantCount] = value(n);
+						constIndex[n] = constantCount++;
+					}
+					ins = (constIndex[n] << 8) | ExprNode.CONST;
+					depth++;
+				} else if (kind == ExprNode.VAR) {
+					ins = (args[n] << 8) | ExprNode.VAR;
+					depth++;
+				} else {
+					if (top + 3 > work.length) {
+						work = Arrays.copyOf(work, work.length * 2);
+					}
+					work[top++] = ~n;
+					if (rights[n] >= 0) {
+						work[top++] = rights[n];
+					}
+					work[top++] = lefts[n];
+					continue;
+				}
+			} else {
+				int n = ~e;
+				int kind = kinds[n];
+				if (kind == ExprNode.ARRAY) {
+					ins = (args[n] << 8) | ExprNode.ARRAY;
+				} else {
+					ins = kind;
+					depth--;
+				}
+				if (uses[n] > 1) {
+					if (length == code.length) {
+						code = Arrays.copyOf(code, length * 2);
+					}
+					code[length++] = ins;
+					temp[n] = temps++;
+					emitted[n] = true;
+					ins = (temp[n] << 8) | CompiledExpression.STORE;
+				}
+			}
+			if (length == code.length) {
+				code = Arrays.copyOf(code, length * 2);
+			}
+			code[length++] = ins;
+			maxDepth = Math.max(maxDepth, depth);
+		}
+		return new CompiledExpression(expr.source(), Arrays.copyOf(code, length),
+				Arrays.copyOf(constants, constantCount), expr.scalarSymbols, expr.arraySymbols,
+				maxDepth, temps);
+	}
+}
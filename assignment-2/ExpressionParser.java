@@ -0,0 +1,160 @@
+package app;
+
+import java.util.Arrays;
+
+/**
+ * This class compiles an expression string into a postfix program, in one pass over its
+ * tokens (see ExpressionLexer), by the same operator-stack method Expression.evaluate
+ * uses - but only once, with every variable and array name resolved to a slot up front.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+class ExpressionParser {
+
+	/**
+	 * Operator stack entries other than the four operators
+	 */
+	private static final int PAREN = 7, BRACKET = 8;
+
+	private final String expr;
+	private int[] code = new int[16];
+	private int length;
+	private float[] constants = new float[8];
+	private int constantCount;
+	private int depth, maxDepth;
+	private final SymbolTable scalars = new SymbolTable();
+	private final SymbolTable arrays = new SymbolTable();
+
+	private ExpressionParser(String expr) {
+		this.expr = expr;
+	}
+
+	/**
+	 * Compiles an expression.
+	 *
+	 * @param expr The expression
+	 * @return Compiled expression
+	 * @throws IllegalArgumentException If the expression is not well formed
+	 */
+	static CompiledExpression parse(String expr) {
+		ExpressionParser p = new ExpressionParser(expr);
+		p.run();
+		return new CompiledExpression(expr, Arrays.copyOf(p.code, p.length),
+				Arrays.copyOf(p.constants, p.constantCount),
+				p.scalars, p.arrays, p.maxDepth, 0);
+	}
+
+	private void run() {
+		ExpressionLexer lexer = ExpressionLexer.local();
+		int count = lexer.tokenize(expr);
+		int[] ops = new int[16];
+		int top = 0;
+		boolean operand = true;    // true where an operand is expected next
+		for (int t = 0; t < count; t++) {
+			int kind = lexer.kind(t);
+			int at = lexer.start(t);
+			if (top + 2 > ops.length) {
+				ops = Arrays.copyOf(ops, ops.length * 2);
+			}
+			switch (kind) {
+			case ExpressionLexer.CONST:
+			case ExpressionLexer.NAME:
+				if (!operand) {
+					throw error("operator expected", at);
+				}
+				if (kind == ExpressionLexer.CONST) {
+					emit(ExprNode.CONST, constant(lexer.value(t)), 1);
+				} else {
+					emit(ExprNode.VAR, lexer.intern(t, scalars), 1);
+				}
+				operand = false;
+				break;
+			case ExpressionLexer.ARRAY_NAME:
+				if (!operand) {
+					throw error("operator expected", at);
+				}
+				ops[top++] = (lexer.intern(t, arrays) << 8) | ExprNode.ARRAY;
+				ops[top++] = BRACKET;
+				t++;    // the '[' that made this an array name
+				break;
+			case ExpressionLexer.LPAREN:
+				if (!operand) {
+					throw error("operator expected", at);
+				}
+				ops[top++] = PAREN;
+				break;
+			case ExpressionLexer.LBRACKET:
+				throw error("'[' without an array name", at);
+			case ExpressionLexer.RPAREN:
+			case ExpressionLexer.RBRACKET:
+				if (operand) {
+					throw error("operand expected", at);
+				}
+				int open = kind == ExpressionLexer.RPAREN ? PAREN : BRACKET;
+				while (top > 0 && ops[top - 1] != PAREN && ops[top - 1] != BRACKET) {
+					emit(ops[--top], 0, -1);
+				}
+				if (top == 0 || ops[top - 1] != open) {
+					throw error("unbalanced '" + expr.charAt(at) + "'", at);
+				}
+				top--;
+				if (open == BRACKET) {
+					int array = ops[--top];
+					emit(ExprNode.ARRAY, array >>> 8, 0);
+				}
+				break;
+			default:
+				if (operand) {
+					throw error("operand expected", at);
+				}
+				while (top > 0 && ops[top - 1] >= ExprNode.ADD && ops[top - 1] <= ExprNode.DIV &&
+						precedence(ops[top - 1]) >= precedence(kind)) {
+					emit(ops[--top], 0, -1);
+				}
+				ops[top++] = kind;
+				operand = true;
+			}
+		}
+		int n = expr.length();
+		if (operand) {
+			throw error("operand expected", n);
+		}
+		while (top > 0) {
+			int op = ops[--top];
+			if (op == PAREN || op == BRACKET) {
+				throw error("unclosed '" + (op == PAREN ? '(' : '[') + "'", n);
+			}
+			emit(op, 0, -1);
+		}
+	}
+
+	/**
+	 * Appends an instruction, kind in the low 8 bits and argument above, and tracks the
+	 * stack depth it leaves.
+	 */
+	private void emit(int kind, int arg, int stackChange) {
+		if (length == code.length) {
+			code = Arrays.copyOf(code, length * 2);
+		}
+		code[length++] = (arg << 8) | kind;
+		depth += stackChange;
+		maxDepth = Math.max(maxDepth, depth);
+	}
+
+	private int constant(float value) {
+		if (constantCount == constants.length) {
+			constants = Arrays.copyOf(constants, constantCount * 2);
+		}
+		constants[constantCount] = value;
+		return constantCount++;
+	}
+
+	private static int precedence(int kind) {
+		return kind == ExprNode.MUL || kind == ExprNode.DIV ? 2 : 1;
+	}
+
+	private IllegalArgumentException error(String message, int position) {
+		return new IllegalArgumentException("Malformed expression at position " + position + ": " + message);
+	}
+}
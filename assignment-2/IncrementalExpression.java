@@ -0,0 +1,494 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * This class evaluates an expression incrementally, for runs where only a few variable
+ * values or array items change between evaluations. The expression is held as a DAG -
+ * identical subexpressions shared, as ExpressionOptimizer makes them - that caches the
+ * value of every node. Setting a variable or an array item marks only the nodes that
+ * read it; value() then recomputes those, and their users in turn, stopping along any
+ * path where a recomputed value comes out unchanged. An update costs time in proportion
+ * to the part of the expression it affects, not to the whole expression.
+ *
+ * Values are those of CompiledExpression.evaluate, to the bit. The values given to the
+ * constructor are taken over: the scalar and array values must afterwards be changed only
+ * through this class, which keeps its caches consistent with them. Arrays held sparse or
+ * off-heap (see ArrayStorage) are read and written in place, never made dense. Instances
+ * are not safe for use by more than one thread at a time.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class IncrementalExpression {
+
+	private final CompiledExpression expr;
+
+	/**
+	 * DAG nodes, by id, children before parents: kind, argument (constant index for CONST,
+	 * slot for VAR and ARRAY), left and right child ids (index for ARRAY), -1 where there
+	 * is none
+	 */
+	private final int[] kinds, args, lefts, rights;
+
+	/**
+	 * Cached value of each node
+	 */
+	private final float[] values;
+
+	/**
+	 * Index last read by each ARRAY node, -1 if it has not read one
+	 */
+	private final int[] indexes;
+
+	/**
+	 * Parents of node n are parents[parentStart[n] .. parentStart[n + 1])
+	 */
+	private final int[] parentStart, parents;
+
+	/**
+	 * VAR nodes of scalar slot s are readers[scalarStart[s] .. scalarStart[s + 1]), and
+	 * ARRAY nodes of array slot a are readers[arrayStart[a] .. arrayStart[a + 1])
+	 */
+	private final int[] scalarStart, arrayStart, readers;
+
+	private final int root;
+
+	private final int[] scalars;
+	private final int[][] arrays;
+
+	/**
+	 * Storage of arrays that are not dense, by slot, where arrays has null; null while
+	 * there are none
+	 */
+	private ArrayStorage[] storage;
+
+	/**
+	 * Min-heap of ids of nodes to recompute, and whether each node is in it
+	 */
+	private int[] heap = new int[16];
+	private int heapSize;
+	private final boolean[] queued;
+
+	/**
+	 * Set when the caches cannot be trusted, after an evaluation failed part way
+	 */
+	private boolean stale = true;
+
+	private long recomputed;
+
+	/**
+	 * Initializes with a compiled expression and the values to evaluate it with.
+	 *
+	 * @param expr Compiled expression
+	 * @param scalars Values of the simple variables, by slot
+	 * @param arrays Values of the arrays, by slot
+	 * @throws IllegalArgumentException If there are fewer scalars or arrays than slots
+	 */
+	public IncrementalExpression(CompiledExpression expr, int[] scalars, int[][] arrays) {
+		if (scalars.length < expr.scalarNames.length || arrays.length < expr.arrayNames.length) {
+			throw new IllegalArgumentException("Expression has " + expr.scalarNames.length + " variables and " +
+					expr.arrayNames.length + " arrays, but " + scalars.length + " and " + arrays.length +
+					" values were given");
+		}
+		this.expr = expr;
+		this.scalars = scalars;
+		this.arrays = arrays;
+
+		CompiledExpression dag = ExpressionOptimizer.optimize(expr);
+		int n = 0;
+		for (int ins : dag.code) {
+			int kind = ins & 0xFF;
+			if (kind != CompiledExpression.LOAD && kind != CompiledExpression.STORE) {
+				n++;
+			}
+		}
+		kinds = new int[n];
+		args = new int[n];
+		lefts = new int[n];
+		rights = new int[n];
+		values = new float[n];
+		indexes = new int[n];
+		queued = new boolean[n];
+		Arrays.fill(indexes, -1);
+
+		// one node per instruction, LOAD giving back the node saved by STORE
+		int[] stack = new int[Math.max(dag.maxDepth, 1)];
+		int[] saved = new int[dag.temps];
+		int sp = 0, id = 0;
+		for (int ins : dag.code) {
+			int kind = ins & 0xFF;
+			int arg = ins >>> 8;
+			if (kind == CompiledExpression.LOAD) {
+				stack[sp++] = saved[arg];
+				continue;
+			}
+			if (kind == CompiledExpression.STORE) {
+				saved[arg] = stack[sp - 1];
+				continue;
+			}
+			kinds[id] = kind;
+			args[id] = arg;
+			lefts[id] = rights[id] = -1;
+			switch (kind) {
+			case ExprNode.CONST:
+				values[id] = dag.constants[arg];
+				stack[sp++] = id;
+				break;
+			case ExprNode.VAR:
+				stack[sp++] = id;
+				break;
+			case ExprNode.ARRAY:
+				lefts[id] = stack[sp - 1];
+				stack[sp - 1] = id;
+				break;
+			default:
+				sp--;
+				lefts[id] = stack[sp - 1];
+				rights[id] = stack[sp];
+				stack[sp - 1] = id;
+			}
+			id++;
+		}
+		root = stack[0];
+
+		// parent lists, counted then filled
+		parentStart = new int[n + 1];
+		for (int i = 0; i < n; i++) {
+			if (lefts[i] >= 0) {
+				parentStart[lefts[i] + 1]++;
+			}
+			if (rights[i] >= 0) {
+				parentStart[rights[i] + 1]++;
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			parentStart[i + 1] += parentStart[i];
+		}
+		parents = new int[parentStart[n]];
+		int[] fill = Arrays.copyOf(parentStart, n);
+		for (int i = 0; i < n; i++) {
+			if (lefts[i] >= 0) {
+				parents[fill[lefts[i]]++] = i;
+			}
+			if (rights[i] >= 0) {
+				parents[fill[rights[i]]++] = i;
+			}
+		}
+
+		// readers of each scalar and array slot
+		int scalarSlots = expr.scalarNames.length, arraySlots = expr.arrayNames.length;
+		scalarStart = new int[scalarSlots + 1];
+		arrayStart = new int[arraySlots + 1];
+		int readerCount = 0;
+		for (int i = 0; i < n; i++) {
+			if (kinds[i] == ExprNode.VAR) {
+				scalarStart[args[i] + 1]++;
+				readerCount++;
+			} else if (kinds[i] == ExprNode.ARRAY) {
+				arrayStart[args[i] + 1]++;
+				readerCount++;
+			}
+		}
+		for (int s = 0; s < scalarSlots; s++) {
+			scalarStart[s + 1] += scalarStart[s];
+		}
+		arrayStart[0] = scalarStart[scalarSlots];
+		for (int a = 0; a < arraySlots; a++) {
+			arrayStart[a + 1] += arrayStart[a];
+		}
+		readers = new int[readerCount];
+		int[] scalarFill = Arrays.copyOf(scalarStart, scalarSlots);
+		int[] arrayFill = Arrays.copyOf(arrayStart, arraySlots);
+		for (int i = 0; i < n; i++) {
+			if (kinds[i] == ExprNode.VAR) {
+				readers[scalarFill[args[i]]++] = i;
+			} else if (kinds[i] == ExprNode.ARRAY) {
+				readers[arrayFill[args[i]]++] = i;
+			}
+		}
+	}
+
+	/**
+	 * Initializes with an expression, and variable and array lists as filled in by
+	 * Expression.makeVariableLists and Expression.loadVariableValues. Variable values and
+	 * dense array items are copied from the lists, which they do not change; sparse and
+	 * off-heap storage is shared with the lists, so setItem changes it there as well.
+	 * Names missing from the lists have value 0 (or, for an array, no items).
+	 *
+	 * @param expr The expression
+	 * @param vars The variables array list
+	 * @param arrays The arrays array list
+	 * @throws IllegalArgumentException If the expression is not well formed
+	 */
+	public IncrementalExpression(String expr, ArrayList<Variable> vars, ArrayList<Array> arrays) {
+		this(Expression.compile(expr), vars, arrays);
+	}
+
+	private IncrementalExpression(CompiledExpression expr, ArrayList<Variable> vars, ArrayList<Array> arrays) {
+		this(expr, new int[expr.scalarNames.length], new int[expr.arrayNames.length][]);
+		for (Variable v : vars) {
+			int slot = expr.scalarSlot(v.name);
+			if (slot >= 0) {
+				scalars[slot] = v.value;
+			}
+		}
+		for (Array a : arrays) {
+			int slot = expr.arraySlot(a.name);
+			if (slot < 0) {
+				continue;
+			}
+			if (a.values != null) {
+				this.arrays[slot] = a.values.clone();
+			} else if (a.storage != null) {
+				setStorage(slot, a.storage);
+			}
+		}
+	}
+
+	/**
+	 * Returns the value of the expression, recomputing only what has changed since the
+	 * last call.
+	 *
+	 * @return Value of expression
+	 */
+	public float value() {
+		try {
+			if (stale) {
+				for (int i = 0; i < kinds.length; i++) {
+					compute(i);
+				}
+				heapSize = 0;
+				Arrays.fill(queued, false);
+				stale = false;
+			} else {
+				while (heapSize > 0) {
+					int i = poll();
+					queued[i] = false;
+					float old = values[i];
+					compute(i);
+					if (Float.floatToIntBits(values[i]) != Float.floatToIntBits(old)) {
+						for (int p = parentStart[i]; p < parentStart[i + 1]; p++) {
+							mark(parents[p]);
+						}
+					}
+				}
+			}
+		} catch (RuntimeException e) {
+			stale = true;    // recompute everything next time
+			throw e;
+		}
+		return values[root];
+	}
+
+	/**
+	 * Sets the value of a simple variable.
+	 *
+	 * @param slot Scalar slot of variable
+	 * @param value New value
+	 */
+	public void setScalar(int slot, int value) {
+		if (scalars[slot] == value) {
+			return;
+		}
+		scalars[slot] = value;
+		for (int r = scalarStart[slot]; r < scalarStart[slot + 1]; r++) {
+			mark(readers[r]);
+		}
+	}
+
+	/**
+	 * Sets the value of a simple variable. Setting a variable that is not in the
+	 * expression does nothing.
+	 *
+	 * @param name Variable name
+	 * @param value New value
+	 */
+	public void setScalar(String name, int value) {
+		int slot = expr.scalarSlot(name);
+		if (slot >= 0) {
+			setScalar(slot, value);
+		}
+	}
+
+	/**
+	 * Sets one item of an array. Only the array items the expression currently reads at
+	 * that index are recomputed.
+	 *
+	 * @param slot Array slot
+	 * @param index Item index
+	 * @param value New value
+	 * @throws ArrayIndexOutOfBoundsException If index is out of the array's bounds
+	 */
+	public void setItem(int slot, int index, int value) {
+		int[] items = arrays[slot];
+		if (items != null) {
+			if (items[index] == value) {
+				return;
+			}
+			items[index] = value;
+		} else {
+			ArrayStorage s = storage[slot];
+			if (s.get(index) == value) {
+				return;
+			}
+			s.set(index, value);
+		}
+		for (int r = arrayStart[slot]; r < arrayStart[slot + 1]; r++) {
+			int node = readers[r];
+			if (indexes[node] == index) {
+				mark(node);
+			}
+		}
+	}
+
+	/**
+	 * Sets one item of an array. Setting an item of an array that is not in the
+	 * expression does nothing.
+	 *
+	 * @param name Array name
+	 * @param index Item index
+	 * @param value New value
+	 * @throws ArrayIndexOutOfBoundsException If index is out of the array's bounds
+	 */
+	public void setItem(String name, int index, int value) {
+		int slot = expr.arraySlot(name);
+		if (slot >= 0) {
+			setItem(slot, index, value);
+		}
+	}
+
+	/**
+	 * Replaces all the items of an array.
+	 *
+	 * @param slot Array slot
+	 * @param items New items, taken over by this object
+	 */
+	public void setArray(int slot, int[] items) {
+		arrays[slot] = items;
+		if (storage != null) {
+			storage[slot] = null;
+		}
+		for (int r = arrayStart[slot]; r < arrayStart[slot + 1]; r++) {
+			mark(readers[r]);
+		}
+	}
+
+	/**
+	 * Replaces all the items of an array with sparse, off-heap or any other storage.
+	 * Dense storage is unwrapped; other kinds are read and written in place.
+	 *
+	 * @param slot Array slot
+	 * @param items New storage of items, taken over by this object
+	 */
+	public void setArray(int slot, ArrayStorage items) {
+		if (items instanceof DenseStorage) {
+			setArray(slot, ((DenseStorage)items).items);
+			return;
+		}
+		setStorage(slot, items);
+		for (int r = arrayStart[slot]; r < arrayStart[slot + 1]; r++) {
+			mark(readers[r]);
+		}
+	}
+
+	/**
+	 * Returns the number of nodes in the DAG.
+	 *
+	 * @return Number of nodes
+	 */
+	public int size() {
+		return kinds.length;
+	}
+
+	/**
+	 * Returns the number of node values computed so far, the initial evaluation included.
+	 *
+	 * @return Number of node computations
+	 */
+	public long recomputed() {
+		return recomputed;
+	}
+
+	/**
+	 * Returns the compiled expression this evaluates.
+	 *
+	 * @return Compiled expression
+	 */
+	public CompiledExpression expression() {
+		return expr;
+	}
+
+	private void setStorage(int slot, ArrayStorage items) {
+		if (storage == null) {
+			storage = new ArrayStorage[arrays.length];
+		}
+		arrays[slot] = null;
+		storage[slot] = items;
+	}
+
+	private void compute(int i) {
+		recomputed++;
+		switch (kinds[i]) {
+		case ExprNode.CONST:
+			break;
+		case ExprNode.VAR:
+			values[i] = scalars[args[i]];
+			break;
+		case ExprNode.ARRAY: {
+			int index = (int)values[lefts[i]];
+			indexes[i] = -1;    // in case the access fails
+			int[] items = arrays[args[i]];
+			values[i] = items != null || storage == null ? items[index] : storage[args[i]].get(index);
+			indexes[i] = index;
+			break;
+		}
+		default:
+			values[i] = ExprNode.apply(kinds[i], values[lefts[i]], values[rights[i]]);
+		}
+	}
+
+	/**
+	 * Queues a node for recomputation, unless it is already queued.
+	 */
+	private void mark(int node) {
+		if (stale || queued[node]) {
+			return;
+		}
+		queued[node] = true;
+		if (heapSize == heap.length) {
+			heap = Arrays.copyOf(heap, heapSize * 2);
+		}
+		int i = heapSize++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (heap[parent] <= node) {
+				break;
+			}
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = node;
+	}
+
+	/**
+	 * Removes and returns the smallest id in the heap.
+	 */
+	private int poll() {
+		int min = heap[0];
+		int last = heap[--heapSize];
+		int i = 0;
+		for (int child; (child = 2 * i + 1) < heapSize; i = child) {
+			if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+				child++;
+			}
+			if (heap[child] >= last) {
+				break;
+			}
+			heap[i] = heap[child];
+		}
+		heap[i] = last;
+		return min;
+	}
+}
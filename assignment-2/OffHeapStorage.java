@@ -0,0 +1,124 @@
+package app;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class stores an array's items outside the heap, in direct byte buffers or in
+ * buffers mapped from a file, so arrays too large for the heap - or for an int[] - can
+ * be held without taking heap space or adding to garbage collection. A buffer holds at
+ * most 2^31 bytes, so the items are split into segments of SEGMENT_ITEMS items each.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class OffHeapStorage implements ArrayStorage {
+
+	/**
+	 * log2 of the number of items in a segment
+	 */
+	static final int SEGMENT_SHIFT = 28;
+
+	/**
+	 * Number of items in a segment
+	 */
+	static final int SEGMENT_ITEMS = 1 << SEGMENT_SHIFT;
+
+	private final int length;
+	private final ByteBuffer[] segments;
+
+	/**
+	 * Initializes all-zero storage in direct buffers.
+	 *
+	 * @param length Number of items
+	 */
+	public OffHeapStorage(int length) {
+		this.length = length;
+		segments = new ByteBuffer[segmentCount(length)];
+		for (int s = 0; s < segments.length; s++) {
+			segments[s] = ByteBuffer.allocateDirect(4 * segmentLength(length, s)).order(ByteOrder.nativeOrder());
+		}
+	}
+
+	private OffHeapStorage(int length, ByteBuffer[] segments) {
+		this.length = length;
+		this.segments = segments;
+	}
+
+	/**
+	 * Returns storage mapped from a file, read and written in place. The file holds the
+	 * items as little-endian ints, and is extended with zeros to 4 * length bytes if it
+	 * is shorter.
+	 *
+	 * @param file File to map
+	 * @param length Number of items
+	 * @return Mapped storage
+	 * @throws IOException If the file cannot be opened or mapped
+	 */
+	public static OffHeapStorage map(Path file, int length) throws IOException {
+		ByteBuffer[] segments = new ByteBuffer[segmentCount(length)];
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			for (int s = 0; s < segments.length; s++) {
+				segments[s] = channel.map(FileChannel.MapMode.READ_WRITE, 4L * s * SEGMENT_ITEMS,
+						4L * segmentLength(length, s)).order(ByteOrder.LITTLE_ENDIAN);
+			}
+		}
+		return new OffHeapStorage(length, segments);
+	}
+
+	/* (non-Javadoc)
+	 * @see app.ArrayStorage#length()
+	 */
+	public int length() {
+		return length;
+	}
+
+	/* (non-Javadoc)
+	 * @see app.ArrayStorage#get(int)
+	 */
+	public int get(int index) {
+		check(index);
+		return segments[index >>> SEGMENT_SHIFT].getInt((index & (SEGMENT_ITEMS - 1)) << 2);
+	}
+
+	/* (non-Javadoc)
+	 * @see app.ArrayStorage#set(int, int)
+	 */
+	public void set(int index, int value) {
+		check(index);
+		segments[index >>> SEGMENT_SHIFT].putInt((index & (SEGMENT_ITEMS - 1)) << 2, value);
+	}
+
+	/* (non-Javadoc)
+	 * @see app.ArrayStorage#bytes()
+	 */
+	public long bytes() {
+		return 4L * length;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return "off-heap, length " + length;
+	}
+
+	private void check(int index) {
+		if (index < 0 || index >= length) {
+			throw new ArrayIndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+		}
+	}
+
+	private static int segmentCount(int length) {
+		return (int)((length + (long)SEGMENT_ITEMS - 1) >>> SEGMENT_SHIFT);
+	}
+
+	private static int segmentLength(int length, int segment) {
+		return (int)Math.min(SEGMENT_ITEMS, length - (long)segment * SEGMENT_ITEMS);
+	}
+}
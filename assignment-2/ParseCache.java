@@ -0,0 +1,278 @@
+package app;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class caches compiled expressions by expression text, for callers that use the
+ * same expressions over and over: a cached expression is not tokenized or parsed again,
+ * and its compiled form carries its variable and array names (scalarNames, arrayNames)
+ * in order of first appearance, the order makeVariableLists lists them in.
+ *
+ * Texts are normalized before parsing, so texts that differ only in blanks share one
+ * entry. The text as given is also kept as a key of its own, so a repeated text is
+ * found without normalizing it again. Texts that are not well formed are cached too,
+ * and fail again without being parsed.
+ *
+ * The cache is bounded by number of keys and by an estimate of the bytes held; least
+ * recently used keys are evicted first. All methods are thread-safe. Parsing is done
+ * outside the lock, so concurrent misses on the same text may both parse it.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class ParseCache {
+
+	/**
+	 * Default bounds, for the caches Expression and EvaluationService make.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 1024;
+	public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+	/**
+	 * Estimated fixed bytes per key: key string, entry and map node headers.
+	 */
+	static final int ENTRY_BYTES = 160;
+
+	private final int maxEntries;
+	private final long maxBytes;
+
+	/**
+	 * Entries in access order, least recently used first.
+	 */
+	private final LinkedHashMap<String, Entry> map = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	private long bytes;
+	private long hits, misses, evictions;
+
+	/**
+	 * Initializes an empty cache.
+	 *
+	 * @param maxEntries Maximum number of keys
+	 * @param maxBytes Maximum estimated size of texts and compiled expressions held
+	 * @throws IllegalArgumentException If either bound is not positive
+	 */
+	public ParseCache(int maxEntries, long maxBytes) {
+		if (maxEntries <= 0 || maxBytes <= 0) {
+			throw new IllegalArgumentException("Cache bounds must be positive: " + maxEntries + ", " + maxBytes);
+		}
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns the compiled form of an expression, from the cache if present. Its source()
+	 * is the text it was first compiled from, which may differ in blanks from this one.
+	 *
+	 * @param expr The expression
+	 * @return Compiled expression
+	 * @throws IllegalArgumentException If the expression is not well formed
+	 */
+	public CompiledExpression get(String expr) {
+		Entry e = entry(expr);
+		if (e.compiled == null) {
+			throw new IllegalArgumentException(e.error);
+		}
+		return e.compiled;
+	}
+
+	/**
+	 * Returns the compiled form of an expression, from the cache if present, or null if
+	 * the expression is not well formed.
+	 */
+	CompiledExpression find(String expr) {
+		return entry(expr).compiled;
+	}
+
+	/**
+	 * Returns the number of lookups answered from the cache.
+	 *
+	 * @return Hit count
+	 */
+	public synchronized long hits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of lookups that had to parse.
+	 *
+	 * @return Miss count
+	 */
+	public synchronized long misses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of keys evicted to stay within the bounds.
+	 *
+	 * @return Eviction count
+	 */
+	public synchronized long evictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns the number of keys, texts as given and normalized.
+	 *
+	 * @return Number of keys
+	 */
+	public synchronized int size() {
+		return map.size();
+	}
+
+	/**
+	 * Returns the estimated bytes held by cached texts and compiled expressions.
+	 *
+	 * @return Estimated size in bytes
+	 */
+	public synchronized long bytes() {
+		return bytes;
+	}
+
+	/**
+	 * Removes all entries. The counters are kept.
+	 */
+	public synchronized void clear() {
+		map.clear();
+		bytes = 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public synchronized String toString() {
+		return "ParseCache[entries=" + map.size() + ", bytes=" + bytes + ", hits=" + hits +
+				", misses=" + misses + ", evictions=" + evictions + "]";
+	}
+
+	/**
+	 * Returns the normal form of an expression: blanks removed, except for one space
+	 * between two names or numbers, which would otherwise run together.
+	 *
+	 * @param expr The expression
+	 * @return Normalized expression, expr itself if it is already normal
+	 */
+	public static String normalize(String expr) {
+		int n = expr.length();
+		int i = 0;
+		while (i < n && !isBlank(expr.charAt(i))) {
+			i++;
+		}
+		if (i == n) {
+			return expr;
+		}
+		StringBuilder sb = new StringBuilder(n);
+		sb.append(expr, 0, i);
+		boolean gap = false;
+		for (; i < n; i++) {
+			char ch = expr.charAt(i);
+			if (isBlank(ch)) {
+				gap = true;
+				continue;
+			}
+			if (gap && sb.length() > 0 && isWord(sb.charAt(sb.length() - 1)) && isWord(ch)) {
+				sb.append(' ');
+			}
+			gap = false;
+			sb.append(ch);
+		}
+		return sb.toString();
+	}
+
+	private static boolean isBlank(char ch) {
+		return ch == ' ' || ch == '\t';
+	}
+
+	/**
+	 * Tells whether a character is part of a name or number, rather than an operator or
+	 * bracket.
+	 */
+	private static boolean isWord(char ch) {
+		return Expression.delims.indexOf(ch) < 0;
+	}
+
+	private Entry entry(String expr) {
+		Entry e = lookup(expr);
+		if (e != null) {
+			return e;
+		}
+		String normal = normalize(expr);
+		if (normal != expr) {
+			e = lookup(normal);
+			if (e != null) {
+				store(expr, e);
+				return e;
+			}
+		}
+		synchronized (this) {
+			misses++;
+		}
+		e = parse(normal);
+		store(normal, e);
+		if (normal != expr) {
+			store(expr, e);
+		}
+		return e;
+	}
+
+	private static Entry parse(String expr) {
+		try {
+			return new Entry(Expression.compile(expr), null);
+		} catch (IllegalArgumentException ex) {
+			return new Entry(null, ex.getMessage());
+		}
+	}
+
+	/**
+	 * Looks up a key, and counts a hit if it is found.
+	 */
+	private synchronized Entry lookup(String key) {
+		Entry e = map.get(key);
+		if (e != null) {
+			hits++;
+		}
+		return e;
+	}
+
+	private synchronized void store(String key, Entry e) {
+		long size = size(key, e);
+		if (size > maxBytes) {
+			return;    // would evict everything else and still not fit
+		}
+		Entry old = map.put(key, e);
+		if (old != null) {
+			bytes -= size(key, old);
+		}
+		bytes += size;
+		Iterator<Map.Entry<String, Entry>> it = map.entrySet().iterator();
+		while ((map.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+			Map.Entry<String, Entry> victim = it.next();
+			bytes -= size(victim.getKey(), victim.getValue());
+			it.remove();
+			evictions++;
+		}
+	}
+
+	private static long size(String key, Entry e) {
+		long size = ENTRY_BYTES + 2L * key.length();
+		if (e.compiled != null) {
+			size += 4L * (e.compiled.code.length + e.compiled.constants.length) +
+					ENTRY_BYTES * ((long)e.compiled.scalarNames.length + e.compiled.arrayNames.length);
+		}
+		return size;
+	}
+
+	/**
+	 * A compiled expression, or the error message of a text that is not well formed.
+	 */
+	private static class Entry {
+		final CompiledExpression compiled;
+		final String error;
+
+		Entry(CompiledExpression compiled, String error) {
+			this.compiled = compiled;
+			this.error = error;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package app;
+
+import java.util.Arrays;
+
+/**
+ * This class stores only the items of an array that have been set, in an
+ * open-addressing hash map from index to value on primitive arrays, so an array of
+ * any declared length costs memory in proportion to the items set in it.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class SparseStorage implements ArrayStorage {
+
+	private final int length;
+
+	/**
+	 * Hash table of indexes, -1 where free, and the value of each; capacity a power of
+	 * two, at most half full
+	 */
+	private int[] keys, values;
+
+	private int size;
+
+	/**
+	 * Initializes all-zero storage.
+	 *
+	 * @param length Number of items
+	 * @param expected Expected number of items to be set
+	 */
+	public SparseStorage(int length, int expected) {
+		this.length = length;
+		int cap = 16;
+		while (cap < expected * 2L && cap < (1 << 30)) {
+			cap <<= 1;
+		}
+		keys = new int[cap];
+		values = new int[cap];
+		Arrays.fill(keys, -1);
+	}
+
+	/* (non-Javadoc)
+	 * @see app.ArrayStorage#length()
+	 */
+	public int length() {
+		return length;
+	}
+
+	/* (non-Javadoc)
+	 * @see app.ArrayStorage#get(int)
+	 */
+	public int get(int index) {
+		check(index);
+		int mask = keys.length - 1;
+		for (int i = mix(index) & mask, k; (k = keys[i]) != -1; i = (i + 1) & mask) {
+			if (k == index) {
+				return values[i];
+			}
+		}
+		return 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see app.ArrayStorage#set(int, int)
+	 */
+	public void set(int index, int value) {
+		check(index);
+		int mask = keys.length - 1;
+		int i = mix(index) & mask;
+		for (int k; (k = keys[i]) != -1; i = (i + 1) & mask) {
+			if (k == index) {
+				values[i] = value;
+				return;
+			}
+		}
+		if (value == 0) {
+			return;    // absent items are 0 already
+		}
+		keys[i] = index;
+		values[i] = value;
+		if (++size * 2 > keys.length) {
+			rehash();
+		}
+	}
+
+	/**
+	 * Returns the number of items held, those set to a non-zero value at some point.
+	 *
+	 * @return Number of items held
+	 */
+	public int size() {
+		return size;
+	}
+
+	/* (non-Javadoc)
+	 * @see app.ArrayStorage#bytes()
+	 */
+	public long bytes() {
+		return 8L * keys.length;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		int[] held = new int[size];
+		int n = 0;
+		for (int k : keys) {
+			if (k != -1) {
+				held[n++] = k;
+			}
+		}
+		Arrays.sort(held);
+		StringBuilder sb = new StringBuilder();
+		sb.append("sparse, length ").append(length);
+		for (int i = 0; i < n; i++) {
+			sb.append(i == 0 ? ": " : " ");
+			sb.append('(').append(held[i]).append(',').append(get(held[i])).append(')');
+		}
+		return sb.toString();
+	}
+
+	private void check(int index) {
+		if (index < 0 || index >= length) {
+			throw new ArrayIndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+		}
+	}
+
+	private void rehash() {
+		int[] oldKeys = keys, oldValues = values;
+		keys = new int[oldKeys.length * 2];
+		values = new int[keys.length];
+		Arrays.fill(keys, -1);
+		int mask = keys.length - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldKeys[j] != -1) {
+				int i = mix(oldKeys[j]) & mask;
+				while (keys[i] != -1) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	private static int mix(int index) {
+		int h = index * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
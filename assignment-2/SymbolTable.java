@@ -0,0 +1,199 @@
+package app;
+
+import java.util.Arrays;
+
+/**
+ * This class interns symbol names to dense integer slots - 0, 1, 2, ... in order of
+ * first appearance - with constant-time lookup in both directions. Lookup can also be
+ * done on a range of characters of a larger text, without creating a String for it.
+ *
+ * The table is an open-addressing hash table of slots on primitive arrays; names are
+ * hashed as String.hashCode does, so looking up a String uses its cached hash.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class SymbolTable {
+
+	/**
+	 * Names, by slot
+	 */
+	private String[] names;
+
+	/**
+	 * Hash of each name, by slot
+	 */
+	private int[] hashes;
+
+	/**
+	 * Hash table of slot + 1, 0 where free; capacity a power of two, at most half full
+	 */
+	private int[] table;
+
+	private int size;
+
+	/**
+	 * Initializes an empty table.
+	 */
+	public SymbolTable() {
+		this(8);
+	}
+
+	/**
+	 * Initializes an empty table sized for the expected number of names.
+	 *
+	 * @param expected Expected number of names
+	 */
+	public SymbolTable(int expected) {
+		int cap = 16;
+		while (cap < expected * 2L && cap < (1 << 30)) {
+			cap <<= 1;
+		}
+		table = new int[cap];
+		names = new String[Math.max(expected, 4)];
+		hashes = new int[names.length];
+	}
+
+	/**
+	 * Returns the slot of a name, giving it the next free slot if it is not in the table.
+	 *
+	 * @param name Name
+	 * @return Slot
+	 */
+	public int intern(String name) {
+		int hash = name.hashCode();
+		int mask = table.length - 1;
+		int i = mix(hash) & mask;
+		for (int s; (s = table[i]) != 0; i = (i + 1) & mask) {
+			if (hashes[s - 1] == hash && names[s - 1].equals(name)) {
+				return s - 1;
+			}
+		}
+		if (size == names.length) {
+			names = Arrays.copyOf(names, size * 2);
+			hashes = Arrays.copyOf(hashes, size * 2);
+		}
+		names[size] = name;
+		hashes[size] = hash;
+		table[i] = ++size;
+		if (size * 2 > table.length) {
+			rehash();
+		}
+		return size - 1;
+	}
+
+	/**
+	 * Returns the slot of a name.
+	 *
+	 * @param name Name
+	 * @return Slot, or -1 if the name is not in the table
+	 */
+	public int find(String name) {
+		int hash = name.hashCode();
+		int mask = table.length - 1;
+		for (int i = mix(hash) & mask, s; (s = table[i]) != 0; i = (i + 1) & mask) {
+			if (hashes[s - 1] == hash && names[s - 1].equals(name)) {
+				return s - 1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the slot of the name text[from..to).
+	 *
+	 * @param text Text holding the name
+	 * @param from Index of first character of name
+	 * @param to Index after last character of name
+	 * @return Slot, or -1 if the name is not in the table
+	 */
+	public int find(CharSequence text, int from, int to) {
+		int hash = 0;
+		for (int k = from; k < to; k++) {
+			hash = 31 * hash + text.charAt(k);
+		}
+		int mask = table.length - 1;
+		for (int i = mix(hash) & mask, s; (s = table[i]) != 0; i = (i + 1) & mask) {
+			if (hashes[s - 1] == hash && matches(names[s - 1], text, from, to)) {
+				return s - 1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the name in a slot.
+	 *
+	 * @param slot Slot
+	 * @return Name
+	 */
+	public String name(int slot) {
+		if (slot < 0 || slot >= size) {
+			throw new IndexOutOfBoundsException("Slot " + slot + " out of bounds for " + size + " symbols");
+		}
+		return names[slot];
+	}
+
+	/**
+	 * Returns the number of names.
+	 *
+	 * @return Number of names
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns all names, in slot order.
+	 *
+	 * @return Names, a new array
+	 */
+	public String[] names() {
+		return Arrays.copyOf(names, size);
+	}
+
+	/**
+	 * Removes all names, keeping the storage for reuse.
+	 */
+	public void clear() {
+		Arrays.fill(table, 0);
+		Arrays.fill(names, 0, size, null);
+		size = 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return Arrays.toString(names());
+	}
+
+	private static boolean matches(String name, CharSequence text, int from, int to) {
+		if (name.length() != to - from) {
+			return false;
+		}
+		for (int k = 0; k < name.length(); k++) {
+			if (name.charAt(k) != text.charAt(from + k)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void rehash() {
+		table = new int[table.length * 2];
+		int mask = table.length - 1;
+		for (int s = 0; s < size; s++) {
+			int i = mix(hashes[s]) & mask;
+			while (table[i] != 0) {
+				i = (i + 1) & mask;
+			}
+			table[i] = s + 1;
+		}
+	}
+
+	private static int mix(int hash) {
+		int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
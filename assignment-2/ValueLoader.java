@@ -0,0 +1,482 @@
+package app;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Scanner;
+
+/**
+ * This class loads variable values files into the variable and array lists filled in by
+ * Expression.makeVariableLists. A text values file has one line per symbol:
+ * <pre>
+ *     name value                                  for a simple variable
+ *     name length (index,value) (index,value) ... for an array
+ * </pre>
+ * Text is parsed by hand, straight off the memory-mapped file, with names looked up by
+ * byte range in symbol tables and array items stored directly into Array.values, so
+ * nothing is created per line or per item. Lines for names not in the lists are skipped.
+ * An array's storage is chosen by ArrayStorage.create from its declared length and the
+ * number of items its line sets, so a long array with few items set is held sparse.
+ *
+ * Values can also be saved in a binary format, which loads with bulk copies and no
+ * parsing at all. All values are little-endian:
+ * <pre>
+ *     int   magic          "VALS"
+ *     byte  version        1
+ *     byte  flags          0
+ *     short reserved       0
+ *     int   count          number of records
+ *     count records, each
+ *       byte  kind         0 variable, 1 dense array, 2 sparse array
+ *       short nameBytes    length of name
+ *       byte  name[]       name, in UTF-8
+ *       int   value        variable: value
+ *       int   length       array: number of items, then
+ *       int   items[]      dense: all the items, or
+ *       int   pairs        sparse: number of (index,value) pairs that follow
+ *       int   pairs[][2]
+ * </pre>
+ * load(Path, ...) tells the two formats apart by the magic number.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class ValueLoader {
+
+	/**
+	 * "VALS" in little-endian byte order.
+	 */
+	static final int MAGIC = 'V' | 'A' << 8 | 'L' << 16 | 'S' << 24;
+
+	/**
+	 * Current format version.
+	 */
+	static final byte VERSION = 1;
+
+	/**
+	 * Length of the header, in bytes.
+	 */
+	static final int HEADER_BYTES = 12;
+
+	/**
+	 * Record kinds.
+	 */
+	static final byte SCALAR = 0, DENSE = 1, SPARSE = 2;
+
+	private final ArrayList<Variable> vars;
+	private final ArrayList<Array> arrays;
+	private final SymbolTable varSymbols = new SymbolTable();
+	private final SymbolTable arraySymbols = new SymbolTable();
+
+	/**
+	 * Input being parsed, as a character sequence for symbol lookups
+	 */
+	private final Bytes text = new Bytes();
+
+	private long line;
+
+	private ValueLoader(ArrayList<Variable> vars, ArrayList<Array> arrays) {
+		this.vars = vars;
+		this.arrays = arrays;
+		for (Variable v : vars) {
+			varSymbols.intern(v.name);
+		}
+		for (Array a : arrays) {
+			arraySymbols.intern(a.name);
+		}
+	}
+
+	/**
+	 * Loads a values file, text or binary, into the variable and array lists.
+	 *
+	 * @param file Values file
+	 * @param vars The variables array list, previously populated by makeVariableLists
+	 * @param arrays The arrays array list - previously populated by makeVariableLists
+	 * @throws IOException If the file cannot be read or is malformed
+	 */
+	public static void load(Path file, ArrayList<Variable> vars, ArrayList<Array> arrays) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long length = channel.size();
+			if (length > Integer.MAX_VALUE) {
+				throw new IOException("Values file too large to map: " + length + " bytes");
+			}
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			buf.order(ByteOrder.LITTLE_ENDIAN);
+			ValueLoader loader = new ValueLoader(vars, arrays);
+			if (length >= HEADER_BYTES && buf.getInt(0) == MAGIC) {
+				loader.readBinary(buf, file);
+			} else {
+				loader.readText(buf, 0, (int)length);
+			}
+		}
+	}
+
+	/**
+	 * Loads values, in the text format, from a scanner, one line at a time.
+	 *
+	 * @param sc Scanner for values input
+	 * @param vars The variables array list, previously populated by makeVariableLists
+	 * @param arrays The arrays array list - previously populated by makeVariableLists
+	 * @throws IOException If the input is malformed
+	 */
+	public static void load(Scanner sc, ArrayList<Variable> vars, ArrayList<Array> arrays) throws IOException {
+		ValueLoader loader = new ValueLoader(vars, arrays);
+		while (sc.hasNextLine()) {
+			byte[] bytes = sc.nextLine().getBytes(StandardCharsets.UTF_8);
+			if (bytes.length == 0) {
+				loader.line++;    // readText sees no line to count
+				continue;
+			}
+			loader.readText(ByteBuffer.wrap(bytes), 0, bytes.length);
+		}
+	}
+
+	/**
+	 * Writes the values of variables and arrays to a file in binary format, replacing the
+	 * file if it exists. Arrays with no values are left out. An array is written sparse if
+	 * fewer than a third of its items are non-zero.
+	 *
+	 * @param file File to write
+	 * @param vars Variables
+	 * @param arrays Arrays
+	 * @throws IOException If the file cannot be written
+	 */
+	public static void writeBinary(Path file, ArrayList<Variable> vars, ArrayList<Array> arrays) throws IOException {
+		int count = vars.size();
+		for (Array a : arrays) {
+			if (a.storage() != null) {
+				count++;
+			}
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer chunk = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+			chunk.putInt(MAGIC).put(VERSION).put((byte)0).putShort((short)0).putInt(count);
+			for (Variable v : vars) {
+				chunk = putName(channel, chunk, SCALAR, v.name);
+				chunk = ensure(channel, chunk, 4);
+				chunk.putInt(v.value);
+			}
+			for (Array a : arrays) {
+				ArrayStorage storage = a.storage();
+				if (storage == null) {
+					continue;
+				}
+				int[] items = a.values;    // null unless dense
+				int length = storage.length();
+				int nonZero = 0;
+				for (int i = 0; i < length; i++) {
+					if ((items != null ? items[i] : storage.get(i)) != 0) {
+						nonZero++;
+					}
+				}
+				boolean sparse = nonZero * 3L < length;
+				chunk = putName(channel, chunk, sparse ? SPARSE : DENSE, a.name);
+				chunk = ensure(channel, chunk, 8);
+				chunk.putInt(length);
+				if (sparse) {
+					chunk.putInt(nonZero);
+					for (int i = 0; i < length; i++) {
+						int item = items != null ? items[i] : storage.get(i);
+						if (item != 0) {
+							chunk = ensure(channel, chunk, 8);
+							chunk.putInt(i).putInt(item);
+						}
+					}
+				} else if (items != null) {
+					for (int i = 0; i < length; ) {
+						chunk = ensure(channel, chunk, 4);
+						int n = Math.min(chunk.remaining() / 4, length - i);
+						chunk.asIntBuffer().put(items, i, n);
+						chunk.position(chunk.position() + 4 * n);
+						i += n;
+					}
+				} else {
+					for (int i = 0; i < length; i++) {
+						chunk = ensure(channel, chunk, 4);
+						chunk.putInt(storage.get(i));
+					}
+				}
+			}
+			chunk.flip();
+			writeFully(channel, chunk);
+		}
+	}
+
+	/**
+	 * Parses text lines in buf[from..to).
+	 */
+	private void readText(ByteBuffer buf, int from, int to) throws IOException {
+		text.buf = buf;
+		int pos = from;
+		while (pos < to) {
+			line++;
+			pos = skipBlanks(buf, pos, to);
+			if (pos == to) {
+				break;
+			}
+			if (buf.get(pos) == '\n') {
+				pos++;    // blank line
+				continue;
+			}
+
+			int start = pos;
+			boolean ascii = true;
+			for (int b; pos < to && (b = buf.get(pos)) != ' ' && b != '\t' && b != '\r' && b != '\n'; pos++) {
+				ascii &= b >= 0;
+			}
+			int varSlot, arraySlot;
+			if (ascii) {
+				varSlot = varSymbols.find(text, start, pos);
+				arraySlot = arraySymbols.find(text, start, pos);
+			} else {
+				String name = utf8(buf, start, pos);
+				varSlot = varSymbols.find(name);
+				arraySlot = arraySymbols.find(name);
+			}
+			if (varSlot < 0 && arraySlot < 0) {
+				pos = endOfLine(buf, pos, to);
+				continue;
+			}
+
+			pos = skipBlanks(buf, pos, to);
+			long num = parseInt(buf, pos, to);
+			pos = (int)(num >>> 32);
+			int value = (int)num;
+			pos = skipBlanks(buf, pos, to);
+			if (pos == to || buf.get(pos) == '\n') {
+				// two tokens: a simple variable, or else an array with no items given
+				if (varSlot >= 0) {
+					vars.get(varSlot).value = value;
+				} else {
+					arrays.get(arraySlot).setStorage(newStorage(value, 0));
+				}
+				pos = endOfLine(buf, pos, to);
+				continue;
+			}
+			if (arraySlot < 0) {
+				pos = endOfLine(buf, pos, to);
+				continue;
+			}
+			// one comma per (index,value) pair
+			int entries = 0;
+			for (int p = pos; p < to && buf.get(p) != '\n'; p++) {
+				if (buf.get(p) == ',') {
+					entries++;
+				}
+			}
+			ArrayStorage storage = newStorage(value, entries);
+			Array arr = arrays.get(arraySlot);
+			arr.setStorage(storage);
+			int[] items = arr.values;    // null unless dense
+			int length = storage.length();
+			while (true) {
+				pos = skipSeparators(buf, pos, to);
+				if (pos == to || buf.get(pos) == '\n') {
+					break;
+				}
+				num = parseInt(buf, pos, to);
+				int index = (int)num;
+				pos = skipSeparators(buf, (int)(num >>> 32), to);
+				num = parseInt(buf, pos, to);
+				pos = (int)(num >>> 32);
+				if (index < 0 || index >= length) {
+					throw malformed("index " + index + " out of bounds for length " + length);
+				}
+				if (items != null) {
+					items[index] = (int)num;
+				} else {
+					storage.set(index, (int)num);
+				}
+			}
+			pos = endOfLine(buf, pos, to);
+		}
+	}
+
+	private ArrayStorage newStorage(int length, long entries) throws IOException {
+		if (length < 0) {
+			throw malformed("negative array length " + length);
+		}
+		return ArrayStorage.create(length, entries);
+	}
+
+	/**
+	 * Parses an optionally signed decimal int at pos, and returns the position after it in
+	 * the high half of a long and the value in the low half.
+	 */
+	private long parseInt(ByteBuffer buf, int pos, int to) throws IOException {
+		boolean negative = false;
+		if (pos < to && (buf.get(pos) == '-' || buf.get(pos) == '+')) {
+			negative = buf.get(pos) == '-';
+			pos++;
+		}
+		int start = pos;
+		long value = 0;
+		for (int b; pos < to && (b = buf.get(pos)) >= '0' && b <= '9'; pos++) {
+			value = value * 10 + (b - '0');
+			if (value > Integer.MAX_VALUE + 1L) {
+				throw malformed("number out of range");
+			}
+		}
+		if (pos == start) {
+			throw malformed("number expected");
+		}
+		value = negative ? -value : value;
+		if (value > Integer.MAX_VALUE) {
+			throw malformed("number out of range");
+		}
+		return ((long)pos << 32) | (value & 0xFFFFFFFFL);
+	}
+
+	private static int skipBlanks(ByteBuffer buf, int pos, int to) {
+		for (int b; pos < to && ((b = buf.get(pos)) == ' ' || b == '\t' || b == '\r'); pos++) {
+		}
+		return pos;
+	}
+
+	private static int skipSeparators(ByteBuffer buf, int pos, int to) {
+		for (int b; pos < to && ((b = buf.get(pos)) == ' ' || b == '\t' || b == '\r' ||
+				b == '(' || b == ',' || b == ')'); pos++) {
+		}
+		return pos;
+	}
+
+	/**
+	 * Returns the position after the end of the line at pos.
+	 */
+	private static int endOfLine(ByteBuffer buf, int pos, int to) {
+		while (pos < to && buf.get(pos) != '\n') {
+			pos++;
+		}
+		return Math.min(pos + 1, to);
+	}
+
+	private void readBinary(ByteBuffer buf, Path file) throws IOException {
+		if (buf.get(4) != VERSION) {
+			throw new IOException("Unsupported binary values version " + buf.get(4) + ": " + file);
+		}
+		int count = buf.getInt(8);
+		int pos = HEADER_BYTES;
+		try {
+			for (int r = 0; r < count; r++) {
+				byte kind = buf.get(pos);
+				int nameBytes = buf.getShort(pos + 1) & 0xFFFF;
+				String name = utf8(buf, pos + 3, pos + 3 + nameBytes);
+				pos += 3 + nameBytes;
+				if (kind == SCALAR) {
+					int slot = varSymbols.find(name);
+					if (slot >= 0) {
+						vars.get(slot).value = buf.getInt(pos);
+					}
+					pos += 4;
+					continue;
+				}
+				int length = buf.getInt(pos);
+				int slot = arraySymbols.find(name);
+				if (kind == DENSE) {
+					if (slot >= 0) {
+						ArrayStorage storage = ArrayStorage.create(length, length);
+						IntBuffer view = buf.duplicate().position(pos + 4).slice()
+							.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+						if (storage instanceof DenseStorage) {
+							view.get(((DenseStorage)storage).items);
+						} else {
+							for (int i = 0; i < length; i++) {
+								storage.set(i, view.get(i));
+							}
+						}
+						arrays.get(slot).setStorage(storage);
+					}
+					pos += 4 + 4 * length;
+				} else if (kind == SPARSE) {
+					int pairs = buf.getInt(pos + 4);
+					pos += 8;
+					if (slot >= 0) {
+						ArrayStorage storage = ArrayStorage.create(length, pairs);
+						for (int i = 0; i < pairs; i++, pos += 8) {
+							storage.set(buf.getInt(pos), buf.getInt(pos + 4));
+						}
+						arrays.get(slot).setStorage(storage);
+					} else {
+						pos += 8 * pairs;
+					}
+				} else {
+					throw new IOException("Corrupt binary values file, bad record kind " + kind + ": " + file);
+				}
+			}
+		} catch (IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException |
+				BufferUnderflowException e) {
+			throw new IOException("Corrupt binary values file: " + file, e);
+		}
+	}
+
+	private static String utf8(ByteBuffer buf, int from, int to) {
+		byte[] bytes = new byte[to - from];
+		buf.duplicate().position(from).get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static ByteBuffer putName(FileChannel channel, ByteBuffer chunk, byte kind, String name) throws IOException {
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > 0xFFFF) {
+			throw new IOException("Name too long for binary values file: " + bytes.length + " bytes");
+		}
+		chunk = ensure(channel, chunk, 3 + bytes.length);
+		return chunk.put(kind).putShort((short)bytes.length).put(bytes);
+	}
+
+	/**
+	 * Makes room for n bytes in the chunk, writing it out first if need be; returns the
+	 * chunk, or a larger one if n does not fit in the chunk at all.
+	 */
+	private static ByteBuffer ensure(FileChannel channel, ByteBuffer chunk, int n) throws IOException {
+		if (chunk.remaining() >= n) {
+			return chunk;
+		}
+		chunk.flip();
+		writeFully(channel, chunk);
+		chunk.clear();
+		return n <= chunk.capacity() ? chunk : ByteBuffer.allocate(n).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+		while (buf.hasRemaining()) {
+			channel.write(buf);
+		}
+	}
+
+	private IOException malformed(String what) {
+		return new IOException("Malformed values input at line " + line + ": " + what);
+	}
+
+	/**
+	 * The input bytes, seen as characters for symbol lookups, one character per byte.
+	 */
+	private static class Bytes implements CharSequence {
+		ByteBuffer buf;
+
+		public int length() {
+			return buf.limit();
+		}
+
+		public char charAt(int index) {
+			return (char)(buf.get(index) & 0xFF);
+		}
+
+		public CharSequence subSequence(int start, int end) {
+			return utf8(buf, start, end);
+		}
+
+		public String toString() {
+			return utf8(buf, 0, buf.limit());
+		}
+	}
+}